@@ -0,0 +1,79 @@
+package com.babinkuk.springmvc.benchmarks;
+
+import com.babinkuk.springmvc.service.StudentAndGradeService;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * createGrade throughput from 1, 4 and 16 threads at once. Grades go to random students, so with many students
+ * writers only meet on the connection pool, while with a single student they all queue on its row lock.
+ *
+ * Grade entities are built per call, nothing is shared between writers; throughput should rise with the thread
+ * count until the pool (10 connections by default) or the round trips run out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GradeCreationBenchmark {
+
+	@Param({"0", "500"})
+	public long roundTripMicros;
+
+	@Param({"1", "1000"})
+	public int numberOfStudents;
+
+	private ConfigurableApplicationContext context;
+
+	private StudentAndGradeService studentService;
+
+	@Setup
+	public void setup() {
+		context = GradebookContext.start(roundTripMicros);
+		studentService = context.getBean(StudentAndGradeService.class);
+
+		List<Object[]> students = new ArrayList<>(numberOfStudents);
+		for (int id = 1; id <= numberOfStudents; id++) {
+			students.add(new Object[] {id, "No" + id, "student" + id + "@babinkuk.com"});
+		}
+		context.getBean(JdbcTemplate.class).batchUpdate(
+				"insert into student(id, firstname, lastname, email_address) values (?, 'Student', ?, ?)", students);
+	}
+
+	@TearDown
+	public void close() {
+		context.close();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean oneThread() {
+		return createGrade();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean fourThreads() {
+		return createGrade();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public boolean sixteenThreads() {
+		return createGrade();
+	}
+
+	private boolean createGrade() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return studentService.createGrade(random.nextInt(10_001) / 100.0, random.nextInt(numberOfStudents) + 1, "math");
+	}
+}
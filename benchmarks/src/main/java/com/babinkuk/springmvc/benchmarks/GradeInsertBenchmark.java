@@ -0,0 +1,96 @@
+package com.babinkuk.springmvc.benchmarks;
+
+import com.babinkuk.springmvc.models.GradeBatchItem;
+import com.babinkuk.springmvc.models.GradeBatchSummary;
+import com.babinkuk.springmvc.models.GradeSnapshot;
+import com.babinkuk.springmvc.service.StudentAndGradeService;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting a batch of grades with pooled sequence ids and hibernate JDBC batching (createGrades)
+ * against IDENTITY ids, where every row is its own insert followed by reading the generated key back.
+ *
+ * {@code identityInserts} is the insert path as it was before pooled sequences, kept as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GradeInsertBenchmark {
+
+	@Param({"0", "500"})
+	public long roundTripMicros;
+
+	@Param({"1000"})
+	public int numberOfGrades;
+
+	private ConfigurableApplicationContext context;
+
+	private JdbcTemplate jdbc;
+
+	private StudentAndGradeService studentService;
+
+	private List<GradeBatchItem> grades;
+
+	@Setup
+	public void setup() {
+		context = GradebookContext.start(roundTripMicros);
+		jdbc = context.getBean(JdbcTemplate.class);
+		studentService = context.getBean(StudentAndGradeService.class);
+
+		jdbc.execute("insert into student(id, firstname, lastname, email_address) values (1, 'Student', 'No1', 'student1@babinkuk.com')");
+		jdbc.execute("CREATE TABLE identity_grade (id INT AUTO_INCREMENT PRIMARY KEY, student_id INT, grade DOUBLE)");
+
+		grades = new ArrayList<>(numberOfGrades);
+		for (GradeSnapshot grade : GradebookData.gradeSnapshots(1, numberOfGrades)) {
+			grades.add(new GradeBatchItem(grade.getStudentId(), "math", grade.getGrade()));
+		}
+	}
+
+	// keeps the grade tables from growing across iterations
+	@TearDown(Level.Iteration)
+	public void deleteGrades() {
+		jdbc.execute("DELETE FROM identity_grade");
+		jdbc.execute("DELETE FROM math_grade");
+		jdbc.execute("DELETE FROM student_subject_stats");
+	}
+
+	@TearDown
+	public void close() {
+		context.close();
+	}
+
+	@Benchmark
+	public GradeBatchSummary pooledBatchedInserts() {
+		return studentService.createGrades(grades);
+	}
+
+	@Benchmark
+	public long identityInserts() {
+		long keys = 0;
+		for (GradeBatchItem grade : grades) {
+			GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+			jdbc.update(connection -> {
+				PreparedStatement ps = connection.prepareStatement(
+						"INSERT INTO identity_grade (student_id, grade) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
+				ps.setInt(1, grade.getStudentId());
+				ps.setDouble(2, grade.getGrade());
+				return ps;
+			}, keyHolder);
+			keys += keyHolder.getKey().longValue();
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,55 @@
+package com.babinkuk.springmvc.benchmarks;
+
+import com.babinkuk.springmvc.models.GradeSnapshot;
+import com.babinkuk.springmvc.models.StudentGrades;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sum and rounded average of one subject's grades.
+ *
+ * {@code bigDecimalGradePointAverage} is the average as it was computed before GradeRounding, kept as the baseline.
+ * Run with {@code -prof gc} to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GradeMathBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int numberOfGrades;
+
+	private List<GradeSnapshot> grades;
+
+	private StudentGrades studentGrades;
+
+	@Setup
+	public void setup() {
+		grades = GradebookData.gradeSnapshots(1, numberOfGrades);
+		studentGrades = new StudentGrades(grades, List.of(), List.of());
+	}
+
+	@Benchmark
+	public double addGradeResultsForSingleClass() {
+		return studentGrades.addGradeResultsForSingleClass(grades);
+	}
+
+	@Benchmark
+	public double bigDecimalGradePointAverage() {
+		double result = studentGrades.addGradeResultsForSingleClass(grades) / grades.size();
+		return BigDecimal.valueOf(result).setScale(2, RoundingMode.HALF_UP).doubleValue();
+	}
+
+	@Benchmark
+	public double findGradePointAverage() {
+		return studentGrades.findGradePointAverage(grades);
+	}
+}
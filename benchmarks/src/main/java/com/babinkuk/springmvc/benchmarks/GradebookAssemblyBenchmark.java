@@ -0,0 +1,42 @@
+package com.babinkuk.springmvc.benchmarks;
+
+import com.babinkuk.springmvc.models.*;
+import com.babinkuk.springmvc.service.GradebookAssembler;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory part of getGradebook: grouping every grade under its student.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GradebookAssemblyBenchmark {
+
+	@Param({"100", "10000", "100000"})
+	public int numberOfStudents;
+
+	@Param({"10"})
+	public int gradesPerStudent;
+
+	private List<CollegeStudent> students;
+
+	private List<MathGrade> mathGrades;
+
+	@Setup
+	public void setup() {
+		students = GradebookData.students(numberOfStudents);
+		mathGrades = GradebookData.mathGrades(numberOfStudents, gradesPerStudent);
+	}
+
+	@Benchmark
+	public Gradebook assemble() {
+		return GradebookAssembler.assemble(students, mathGrades, List.<ScienceGrade>of(), List.<HistoryGrade>of(), List.<StudentSubjectStats>of());
+	}
+}
@@ -0,0 +1,86 @@
+package com.babinkuk.springmvc.benchmarks;
+
+import com.babinkuk.springmvc.MvcTestingExampleApplication;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The gradebook application on an in-memory H2 database, for the benchmarks that go through the services.
+ *
+ * In-memory H2 answers without a network round trip, which hides what batching and parallel queries save.
+ * With a round trip above zero every JDBC execute call waits that long first, e.g. 500 us for a MySQL server on the local network.
+ */
+final class GradebookContext {
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private GradebookContext() {}
+
+	static ConfigurableApplicationContext start(long roundTripMicros, String... properties) {
+		List<String> args = new ArrayList<>();
+		args.add("--spring.config.additional-location=classpath:/application-test.properties");
+		args.add("--spring.datasource.url=jdbc:h2:mem:benchmark" + DATABASES.incrementAndGet());
+		args.add("--spring.jpa.show-sql=false");
+		args.add("--logging.level.root=warn");
+		for (String property : properties) {
+			args.add("--" + property);
+		}
+
+		long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+		return new SpringApplicationBuilder(MvcTestingExampleApplication.class)
+				.web(WebApplicationType.NONE)
+				.bannerMode(Banner.Mode.OFF)
+				.initializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+					@Override
+					public Object postProcessAfterInitialization(Object bean, String beanName) {
+						if (roundTripNanos > 0 && bean instanceof DataSource) {
+							return withLatency(bean, DataSource.class, roundTripNanos);
+						}
+						return bean;
+					}
+				}))
+				.run(args.toArray(new String[0]));
+	}
+
+	// wraps connections and statements so every execute call waits one round trip first
+	private static Object withLatency(Object target, Class<?> type, long roundTripNanos) {
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			if (method.getName().startsWith("execute")) {
+				LockSupport.parkNanos(roundTripNanos);
+			}
+			return invoke(target, method, args, roundTripNanos);
+		});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args, long roundTripNanos) throws Throwable {
+		Object result;
+		try {
+			result = method.invoke(target, args);
+		} catch (InvocationTargetException exc) {
+			throw exc.getCause();
+		}
+
+		Class<?> returnType = method.getReturnType();
+		if (result != null && (returnType == Connection.class || Statement.class.isAssignableFrom(returnType))) {
+			return withLatency(result, returnType, roundTripNanos);
+		}
+		return result;
+	}
+}
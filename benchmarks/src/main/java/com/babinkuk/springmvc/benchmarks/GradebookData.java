@@ -0,0 +1,57 @@
+package com.babinkuk.springmvc.benchmarks;
+
+import com.babinkuk.springmvc.models.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic students and grades, generated from a fixed seed so every run and every release sees the same data.
+ */
+final class GradebookData {
+
+	private static final long SEED = 42;
+
+	private GradebookData() {}
+
+	static List<CollegeStudent> students(int numberOfStudents) {
+		List<CollegeStudent> students = new ArrayList<>(numberOfStudents);
+		for (int id = 1; id <= numberOfStudents; id++) {
+			CollegeStudent student = new CollegeStudent("Student", "No" + id, "student" + id + "@babinkuk.com");
+			student.setId(id);
+			students.add(student);
+		}
+		return students;
+	}
+
+	// grades of all students interleaved, the way rows come back from an unordered table scan
+	static List<MathGrade> mathGrades(int numberOfStudents, int gradesPerStudent) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		List<MathGrade> grades = new ArrayList<>(numberOfStudents * gradesPerStudent);
+		int id = 1;
+		for (int round = 0; round < gradesPerStudent; round++) {
+			for (int studentId = 1; studentId <= numberOfStudents; studentId++) {
+				MathGrade grade = new MathGrade(grade(random));
+				grade.setId(id++);
+				grade.setStudentId(studentId);
+				grades.add(grade);
+			}
+		}
+		return grades;
+	}
+
+	static List<GradeSnapshot> gradeSnapshots(int studentId, int numberOfGrades) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		List<GradeSnapshot> grades = new ArrayList<>(numberOfGrades);
+		for (int id = 1; id <= numberOfGrades; id++) {
+			grades.add(new GradeSnapshot(id, studentId, grade(random)));
+		}
+		return grades;
+	}
+
+	// two decimals between 0 and 100, like grades entered in the ui
+	private static double grade(SplittableRandom random) {
+		return random.nextInt(10_001) / 100.0;
+	}
+}
@@ -0,0 +1,50 @@
+package com.babinkuk.springmvc.benchmarks;
+
+import com.babinkuk.springmvc.models.*;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of one GradebookCollegeStudent, as written by GET /studentInformation/{id}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GradebookSerializationBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int gradesPerSubject;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private GradebookCollegeStudent student;
+
+	@Setup
+	public void setup() {
+		List<GradeSnapshot> grades = GradebookData.gradeSnapshots(1, gradesPerSubject);
+		student = new GradebookCollegeStudent(1, "Samba", "Rumba", "samba.rumba@babinkuk.com",
+				new StudentGrades(grades, grades, grades));
+
+		for (String gradeType : new String[] {"math", "science", "history"}) {
+			StudentSubjectStats stats = new StudentSubjectStats(1, gradeType);
+			for (GradeSnapshot grade : grades) {
+				stats.addGrade(grade.getGrade());
+			}
+			student.getSubjectStats().put(gradeType, stats);
+		}
+	}
+
+	@Benchmark
+	public byte[] writeValueAsBytes() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(student);
+	}
+}
@@ -0,0 +1,78 @@
+package com.babinkuk.springmvc.benchmarks;
+
+import com.babinkuk.springmvc.models.CollegeStudent;
+import com.babinkuk.springmvc.models.GradebookCollegeStudent;
+import com.babinkuk.springmvc.service.StudentAndGradeService;
+import com.babinkuk.springmvc.service.StudentInformationLoader;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading one student with grades and aggregates in each studentInformation mode, bypassing the cache.
+ *
+ * {@code sequential} sends the five queries one after another and is the baseline of {@code parallel},
+ * which sends them at once; {@code singleQuery} is one round trip for everything.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentInformationBenchmark {
+
+	private static final String[] GRADE_TYPES = {"math", "science", "history"};
+
+	@Param({"0", "500"})
+	public long roundTripMicros;
+
+	@Param({"10"})
+	public int gradesPerSubject;
+
+	private ConfigurableApplicationContext context;
+
+	private StudentInformationLoader loader;
+
+	private int studentId;
+
+	@Setup
+	public void setup() {
+		context = GradebookContext.start(roundTripMicros, "gradebook.student-information.threads=5");
+		loader = context.getBean(StudentInformationLoader.class);
+
+		StudentAndGradeService studentService = context.getBean(StudentAndGradeService.class);
+		CollegeStudent student = studentService.createStudent("Student", "No1", "student1@babinkuk.com");
+		studentId = student.getId();
+
+		SplittableRandom random = new SplittableRandom(42);
+		for (String gradeType : GRADE_TYPES) {
+			for (int i = 0; i < gradesPerSubject; i++) {
+				studentService.createGrade(random.nextInt(10_001) / 100.0, studentId, gradeType);
+			}
+		}
+	}
+
+	@TearDown
+	public void close() {
+		context.close();
+	}
+
+	@Benchmark
+	public GradebookCollegeStudent singleQuery() {
+		return loader.loadSingleQuery(studentId);
+	}
+
+	@Benchmark
+	public GradebookCollegeStudent sequential() {
+		return loader.loadSequential(studentId);
+	}
+
+	@Benchmark
+	public GradebookCollegeStudent parallel() {
+		return loader.loadParallel(studentId);
+	}
+}
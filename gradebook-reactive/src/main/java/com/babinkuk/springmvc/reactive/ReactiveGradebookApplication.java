@@ -0,0 +1,13 @@
+package com.babinkuk.springmvc.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveGradebookApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveGradebookApplication.class, args);
+	}
+
+}
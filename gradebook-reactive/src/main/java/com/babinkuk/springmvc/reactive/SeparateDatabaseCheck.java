@@ -0,0 +1,52 @@
+package com.babinkuk.springmvc.reactive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.r2dbc.BadSqlGrammarException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Refuses to start on the servlet application's database.
+ *
+ * The two applications must never share a database: this one takes AUTO_INCREMENT ids while the servlet application
+ * hands out ids from pooled sequences, so their inserts collide, and writes made here bypass the servlet application's
+ * caches, student revisions, ranking index and registered email filter.
+ * The servlet schema is recognized by the student revision column and by the sequence tables hibernate keeps on MySQL.
+ */
+@Component
+public class SeparateDatabaseCheck implements ApplicationRunner {
+
+	private static final String[] SERVLET_SCHEMA_PROBES = {
+			"SELECT revision FROM student WHERE 1 = 0",
+			"SELECT next_val FROM student_seq WHERE 1 = 0"
+	};
+
+	private final DatabaseClient databaseClient;
+
+	@Autowired
+	public SeparateDatabaseCheck(DatabaseClient databaseClient) {
+		this.databaseClient = databaseClient;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		check();
+	}
+
+	public void check() {
+		for (String probe : SERVLET_SCHEMA_PROBES) {
+			// only a missing table or column counts as a separate database, any other failure is reported as is
+			boolean servletSchema = databaseClient.sql(probe).fetch().all().then(Mono.just(true))
+					.onErrorReturn(BadSqlGrammarException.class, false)
+					.block();
+			if (servletSchema) {
+				throw new IllegalStateException("spring.r2dbc.url points at the servlet gradebook's database ("
+						+ probe + " succeeded), the reactive gradebook needs a database of its own");
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.babinkuk.springmvc.reactive.controller;
+
+import com.babinkuk.springmvc.reactive.exceptionhandling.StudentOrGradeErrorResponse;
+import com.babinkuk.springmvc.reactive.exceptionhandling.StudentOrGradeNotFoundException;
+import com.babinkuk.springmvc.reactive.models.CollegeStudent;
+import com.babinkuk.springmvc.reactive.models.GradebookStudent;
+import com.babinkuk.springmvc.reactive.service.ReactiveGradebookService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The GradebookController endpoints on WebFlux. Handlers never block, so a few event-loop
+ * threads serve any number of open connections.
+ */
+@RestController
+public class ReactiveGradebookController {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    @Autowired
+    private ReactiveGradebookService studentService;
+
+
+    @GetMapping(value = "/", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<GradebookStudent>>> getStudents(@RequestParam(value = "after", defaultValue = "0") int after,
+                                                                    @RequestParam(value = "limit", defaultValue = "100") int limit) {
+
+        return studentService.getGradebookPage(after, limit).map(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+                response.header(HttpHeaders.LINK, "</?after=" + page.getNextCursor() + "&limit=" + limit + ">; rel=\"next\"");
+            }
+
+            return response.body(page.getStudents());
+        });
+    }
+
+
+    // one json document per line, written as the client reads
+    @GetMapping(value = "/", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<GradebookStudent> streamStudents() {
+
+        return studentService.streamGradebook();
+    }
+
+
+    @GetMapping("/studentInformation/{id}")
+    public Mono<GradebookStudent> studentInformation(@PathVariable int id) {
+
+        return studentService.studentInformation(id).switchIfEmpty(notFound());
+    }
+
+
+    @PostMapping(value = "/")
+    public Mono<ResponseEntity<CollegeStudent>> createStudent(@RequestBody CollegeStudent student, UriComponentsBuilder uriBuilder) {
+
+        return studentService.createStudent(student.getFirstname(), student.getLastname(), student.getEmailAddress())
+                .map(createdStudent -> ResponseEntity
+                        .created(uriBuilder.path("/studentInformation/{id}").buildAndExpand(createdStudent.getId()).toUri())
+                        .body(createdStudent));
+    }
+
+
+    @DeleteMapping("/student/{id}")
+    public Mono<CollegeStudent> deleteStudent(@PathVariable int id) {
+
+        return studentService.deleteStudent(id).switchIfEmpty(notFound());
+    }
+
+
+    @PostMapping(value = "/grades")
+    public Mono<GradebookStudent> createGrade(@RequestParam("grade") double grade,
+                                              @RequestParam("gradeType") String gradeType,
+                                              @RequestParam("studentId") int studentId) {
+
+        return studentService.createGrade(grade, studentId, gradeType)
+                .flatMap(studentService::studentInformation)
+                .switchIfEmpty(notFound());
+    }
+
+
+    @DeleteMapping("/grades/{id}/{gradeType}")
+    public Mono<GradebookStudent> deleteGrade(@PathVariable int id, @PathVariable String gradeType) {
+
+        return studentService.deleteGrade(id, gradeType)
+                .flatMap(studentService::studentInformation)
+                .switchIfEmpty(notFound());
+    }
+
+    private <T> Mono<T> notFound() {
+        return Mono.error(() -> new StudentOrGradeNotFoundException("Student or Grade was not found"));
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<StudentOrGradeErrorResponse> handleException(StudentOrGradeNotFoundException exc) {
+
+        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
+
+        error.setStatus(HttpStatus.NOT_FOUND.value());
+        error.setMessage(exc.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<StudentOrGradeErrorResponse> handleException(Exception exc) {
+
+        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
+
+        error.setStatus(HttpStatus.BAD_REQUEST.value());
+        error.setMessage(exc.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,16 @@
+package com.babinkuk.springmvc.reactive.exceptionhandling;
+
+public class StudentOrGradeNotFoundException extends RuntimeException {
+
+    public StudentOrGradeNotFoundException(String message) {
+        super(message);
+    }
+
+    public StudentOrGradeNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public StudentOrGradeNotFoundException(Throwable cause) {
+        super(cause);
+    }
+}
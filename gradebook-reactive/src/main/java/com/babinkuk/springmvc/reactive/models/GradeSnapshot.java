@@ -0,0 +1,35 @@
+package com.babinkuk.springmvc.reactive.models;
+
+/**
+ * Read-only copy of a single grade, same JSON shape as the servlet api.
+ */
+public final class GradeSnapshot {
+
+    private final int id;
+
+    private final int studentId;
+
+    private final double grade;
+
+    public GradeSnapshot(int id, int studentId, double grade) {
+        this.id = id;
+        this.studentId = studentId;
+        this.grade = grade;
+    }
+
+    public static GradeSnapshot of(SubjectGrade grade) {
+        return new GradeSnapshot(grade.getId(), grade.getStudentId(), grade.getGrade());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public double getGrade() {
+        return grade;
+    }
+}
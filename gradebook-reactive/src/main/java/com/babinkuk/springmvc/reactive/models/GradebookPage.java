@@ -0,0 +1,24 @@
+package com.babinkuk.springmvc.reactive.models;
+
+import java.util.List;
+
+public class GradebookPage {
+
+    private final List<GradebookStudent> students;
+
+    private final Integer nextCursor;
+
+    public GradebookPage(List<GradebookStudent> students, Integer nextCursor) {
+        this.students = students;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<GradebookStudent> getStudents() {
+        return students;
+    }
+
+    // id to pass as "after" for the next page, null on the last page
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+}
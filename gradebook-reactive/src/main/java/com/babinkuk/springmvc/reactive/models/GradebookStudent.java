@@ -0,0 +1,49 @@
+package com.babinkuk.springmvc.reactive.models;
+
+/**
+ * A student with all of its grades, the reactive counterpart of GradebookCollegeStudent.
+ */
+public final class GradebookStudent {
+
+    private final int id;
+
+    private final String firstname;
+
+    private final String lastname;
+
+    private final String emailAddress;
+
+    private final StudentGrades studentGrades;
+
+    public GradebookStudent(CollegeStudent student, StudentGrades studentGrades) {
+        this.id = student.getId();
+        this.firstname = student.getFirstname();
+        this.lastname = student.getLastname();
+        this.emailAddress = student.getEmailAddress();
+        this.studentGrades = studentGrades;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFirstname() {
+        return firstname;
+    }
+
+    public String getLastname() {
+        return lastname;
+    }
+
+    public String getEmailAddress() {
+        return emailAddress;
+    }
+
+    public String getFullName() {
+        return firstname + " " + lastname;
+    }
+
+    public StudentGrades getStudentGrades() {
+        return studentGrades;
+    }
+}
@@ -0,0 +1,16 @@
+package com.babinkuk.springmvc.reactive.models;
+
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("history_grade")
+public class HistoryGrade extends SubjectGrade {
+
+    public HistoryGrade() {
+
+    }
+
+    public HistoryGrade(int studentId, double grade) {
+        setStudentId(studentId);
+        setGrade(grade);
+    }
+}
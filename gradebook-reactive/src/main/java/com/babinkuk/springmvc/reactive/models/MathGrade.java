@@ -0,0 +1,16 @@
+package com.babinkuk.springmvc.reactive.models;
+
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("math_grade")
+public class MathGrade extends SubjectGrade {
+
+    public MathGrade() {
+
+    }
+
+    public MathGrade(int studentId, double grade) {
+        setStudentId(studentId);
+        setGrade(grade);
+    }
+}
@@ -0,0 +1,16 @@
+package com.babinkuk.springmvc.reactive.models;
+
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("science_grade")
+public class ScienceGrade extends SubjectGrade {
+
+    public ScienceGrade() {
+
+    }
+
+    public ScienceGrade(int studentId, double grade) {
+        setStudentId(studentId);
+        setGrade(grade);
+    }
+}
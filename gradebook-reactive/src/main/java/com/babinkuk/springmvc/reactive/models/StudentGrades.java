@@ -0,0 +1,34 @@
+package com.babinkuk.springmvc.reactive.models;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of one student's grades.
+ */
+public final class StudentGrades {
+
+    private final List<GradeSnapshot> mathGradeResults;
+
+    private final List<GradeSnapshot> scienceGradeResults;
+
+    private final List<GradeSnapshot> historyGradeResults;
+
+    public StudentGrades(List<GradeSnapshot> mathGradeResults, List<GradeSnapshot> scienceGradeResults,
+                         List<GradeSnapshot> historyGradeResults) {
+        this.mathGradeResults = List.copyOf(mathGradeResults);
+        this.scienceGradeResults = List.copyOf(scienceGradeResults);
+        this.historyGradeResults = List.copyOf(historyGradeResults);
+    }
+
+    public List<GradeSnapshot> getMathGradeResults() {
+        return mathGradeResults;
+    }
+
+    public List<GradeSnapshot> getScienceGradeResults() {
+        return scienceGradeResults;
+    }
+
+    public List<GradeSnapshot> getHistoryGradeResults() {
+        return historyGradeResults;
+    }
+}
@@ -0,0 +1,42 @@
+package com.babinkuk.springmvc.reactive.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+
+/**
+ * Columns shared by the three subject grade tables.
+ */
+public abstract class SubjectGrade {
+
+    @Id
+    private Integer id;
+
+    @Column("student_id")
+    private int studentId;
+
+    private double grade;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(int studentId) {
+        this.studentId = studentId;
+    }
+
+    public double getGrade() {
+        return grade;
+    }
+
+    public void setGrade(double grade) {
+        this.grade = grade;
+    }
+}
@@ -0,0 +1,25 @@
+package com.babinkuk.springmvc.reactive.repository;
+
+import com.babinkuk.springmvc.reactive.models.HistoryGrade;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+public interface HistoryGradeRepository extends ReactiveCrudRepository<HistoryGrade, Integer> {
+
+    public Flux<HistoryGrade> findByStudentId(int studentId);
+
+    public Flux<HistoryGrade> findByStudentIdIn(Collection<Integer> studentIds);
+
+    @Modifying
+    @Query("DELETE FROM history_grade WHERE student_id = :studentId")
+    public Mono<Integer> deleteByStudentId(int studentId);
+}
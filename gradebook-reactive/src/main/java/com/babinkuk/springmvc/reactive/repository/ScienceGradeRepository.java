@@ -0,0 +1,25 @@
+package com.babinkuk.springmvc.reactive.repository;
+
+import com.babinkuk.springmvc.reactive.models.ScienceGrade;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+public interface ScienceGradeRepository extends ReactiveCrudRepository<ScienceGrade, Integer> {
+
+    public Flux<ScienceGrade> findByStudentId(int studentId);
+
+    public Flux<ScienceGrade> findByStudentIdIn(Collection<Integer> studentIds);
+
+    @Modifying
+    @Query("DELETE FROM science_grade WHERE student_id = :studentId")
+    public Mono<Integer> deleteByStudentId(int studentId);
+}
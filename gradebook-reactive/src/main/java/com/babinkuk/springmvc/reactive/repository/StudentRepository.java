@@ -0,0 +1,17 @@
+package com.babinkuk.springmvc.reactive.repository;
+
+import com.babinkuk.springmvc.reactive.models.CollegeStudent;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface StudentRepository extends ReactiveCrudRepository<CollegeStudent, Integer> {
+
+    // keyset page: students with an id above the cursor, in id order
+    @Query("SELECT * FROM student WHERE id > :after ORDER BY id LIMIT :limit")
+    public Flux<CollegeStudent> findPage(int after, int limit);
+}
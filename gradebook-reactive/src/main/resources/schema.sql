@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS student (id INT AUTO_INCREMENT PRIMARY KEY, firstname VARCHAR(255), lastname VARCHAR(255), email_address VARCHAR(255));
+CREATE TABLE IF NOT EXISTS math_grade (id INT AUTO_INCREMENT PRIMARY KEY, student_id INT NOT NULL, grade DOUBLE NOT NULL);
+CREATE TABLE IF NOT EXISTS science_grade (id INT AUTO_INCREMENT PRIMARY KEY, student_id INT NOT NULL, grade DOUBLE NOT NULL);
+CREATE TABLE IF NOT EXISTS history_grade (id INT AUTO_INCREMENT PRIMARY KEY, student_id INT NOT NULL, grade DOUBLE NOT NULL);
+CREATE TABLE IF NOT EXISTS student_subject_stats (student_id INT NOT NULL, grade_type VARCHAR(16) NOT NULL, grade_count INT NOT NULL,
+    grade_sum DOUBLE NOT NULL, min_grade DOUBLE NOT NULL, max_grade DOUBLE NOT NULL, PRIMARY KEY (student_id, grade_type));
@@ -0,0 +1,230 @@
+package com.babinkuk.springmvc.reactive;
+
+import com.babinkuk.springmvc.reactive.controller.ReactiveGradebookController;
+import com.babinkuk.springmvc.reactive.models.CollegeStudent;
+import com.babinkuk.springmvc.reactive.models.MathGrade;
+import com.babinkuk.springmvc.reactive.repository.MathGradeRepository;
+import com.babinkuk.springmvc.reactive.repository.StudentRepository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.r2dbc.spi.ConnectionFactories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ReactiveGradebookControllerTest {
+
+	private static final int SLOW_CLIENTS = 2_000;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private MathGradeRepository mathGradeRepository;
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	private CollegeStudent student;
+
+	private MathGrade mathGrade;
+
+	@BeforeEach
+	public void setupDatabase() {
+		student = studentRepository.save(new CollegeStudent("Samba", "Rumba", "samba.rumba@babinkuk.com")).block();
+		studentRepository.save(new CollegeStudent("Tito", "Tito", "tito@babinkuk.com")).block();
+		studentRepository.save(new CollegeStudent("Toto", "Toto", "toto@babinkuk.com")).block();
+		mathGrade = mathGradeRepository.save(new MathGrade(student.getId(), 90.00)).block();
+	}
+
+	@Test
+	public void getStudentsHttpRequestPaged() {
+
+		webTestClient.get().uri("/?limit=2").accept(MediaType.APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().exists(ReactiveGradebookController.NEXT_CURSOR_HEADER)
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(2)
+			.jsonPath("$[0].firstname").isEqualTo("Samba")
+			.jsonPath("$[0].studentGrades.mathGradeResults[0].grade").isEqualTo(90.00);
+	}
+
+	@Test
+	public void streamStudentsHttpRequest() {
+
+		Flux<JsonNode> students = webTestClient.get().uri("/").accept(MediaType.APPLICATION_NDJSON)
+			.exchange()
+			.expectStatus().isOk()
+			.returnResult(JsonNode.class).getResponseBody();
+
+		StepVerifier.create(students.map(student -> student.get("firstname").asText()))
+			.expectNext("Samba", "Tito", "Toto")
+			.verifyComplete();
+	}
+
+	@Test
+	public void studentInformationHttpRequest() {
+
+		webTestClient.get().uri("/studentInformation/{id}", student.getId())
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.emailAddress").isEqualTo("samba.rumba@babinkuk.com")
+			.jsonPath("$.studentGrades.mathGradeResults.length()").isEqualTo(1);
+
+		webTestClient.get().uri("/studentInformation/{id}", 0)
+			.exchange()
+			.expectStatus().isNotFound()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo("Student or Grade was not found");
+	}
+
+	@Test
+	public void createStudentHttpRequest() {
+
+		webTestClient.post().uri("/").contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(new CollegeStudent("Bobo", "Bobo", "bobo@babinkuk.com"))
+			.exchange()
+			.expectStatus().isCreated()
+			.expectHeader().value(HttpHeaders.LOCATION, location -> assertTrue(location.contains("/studentInformation/")))
+			.expectBody()
+			.jsonPath("$.emailAddress").isEqualTo("bobo@babinkuk.com");
+
+		assertEquals(4, studentRepository.count().block());
+	}
+
+	@Test
+	public void createAndDeleteGradeHttpRequest() {
+
+		webTestClient.post().uri(uri -> uri.path("/grades").queryParam("grade", "70.00")
+					.queryParam("gradeType", "math").queryParam("studentId", student.getId()).build())
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.studentGrades.mathGradeResults.length()").isEqualTo(2);
+
+		assertEquals(160.00, subjectStats(student.getId(), "math").get("grade_sum"));
+
+		webTestClient.delete().uri("/grades/{id}/{gradeType}", mathGrade.getId(), "math")
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.studentGrades.mathGradeResults.length()").isEqualTo(1);
+
+		assertEquals(70.00, subjectStats(student.getId(), "math").get("grade_sum"));
+
+		webTestClient.post().uri(uri -> uri.path("/grades").queryParam("grade", "170.00")
+					.queryParam("gradeType", "math").queryParam("studentId", student.getId()).build())
+			.exchange()
+			.expectStatus().isNotFound();
+	}
+
+	@Test
+	public void deleteStudentHttpRequest() {
+
+		webTestClient.delete().uri("/student/{id}", student.getId())
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.id").value(is(student.getId()));
+
+		assertFalse(studentRepository.existsById(student.getId()).block());
+		assertEquals(0, mathGradeRepository.findByStudentId(student.getId()).count().block());
+	}
+
+	@Test
+	public void manySlowClientsOnFewEventLoopThreads() {
+
+		ConnectionProvider connections = ConnectionProvider.builder("slow-clients")
+				.maxConnections(SLOW_CLIENTS).pendingAcquireMaxCount(-1).build();
+
+		WebClient client = WebClient.builder()
+				.baseUrl("http://localhost:" + port)
+				.clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+				.build();
+
+		try {
+			// every client reads one student at a time and takes 50 ms per student
+			List<Long> received = Flux.range(0, SLOW_CLIENTS)
+					.flatMap(i -> client.get().uri("/").accept(MediaType.APPLICATION_NDJSON)
+							.retrieve().bodyToFlux(JsonNode.class)
+							.limitRate(1)
+							.delayElements(Duration.ofMillis(50))
+							.count(), SLOW_CLIENTS)
+					.collectList()
+					.block(Duration.ofMinutes(2));
+
+			assertEquals(SLOW_CLIENTS, received.size());
+			for (long count : received) {
+				assertEquals(3, count);
+			}
+		} finally {
+			connections.dispose();
+		}
+
+		long eventLoopThreads = Thread.getAllStackTraces().keySet().stream()
+				.filter(thread -> thread.getName().startsWith("reactor-http-"))
+				.count();
+
+		assertTrue(eventLoopThreads <= Math.max(4, Runtime.getRuntime().availableProcessors()),
+				"server and client share the netty event loops: " + eventLoopThreads + " threads");
+	}
+
+	@Test
+	public void refusesTheServletDatabase() {
+
+		// this context started, so its own database passed
+		new SeparateDatabaseCheck(databaseClient).check();
+
+		DatabaseClient servletDatabase = DatabaseClient.create(ConnectionFactories.get("r2dbc:h2:mem:///servlet-gradebook;DB_CLOSE_DELAY=-1"));
+		servletDatabase.sql("CREATE TABLE student (id INT PRIMARY KEY, firstname VARCHAR(255), lastname VARCHAR(255), "
+				+ "email_address VARCHAR(255), revision BIGINT DEFAULT 0 NOT NULL)").fetch().rowsUpdated().block();
+
+		assertThrows(IllegalStateException.class, () -> new SeparateDatabaseCheck(servletDatabase).check());
+	}
+
+	private Map<String, Object> subjectStats(int studentId, String gradeType) {
+		return databaseClient.sql("SELECT * FROM student_subject_stats WHERE student_id = :studentId AND grade_type = :gradeType")
+				.bind("studentId", studentId)
+				.bind("gradeType", gradeType)
+				.fetch().one().block();
+	}
+
+	@AfterEach
+	public void setupAfterTransaction() {
+		for (String table : new String[] {"student", "math_grade", "science_grade", "history_grade", "student_subject_stats"}) {
+			databaseClient.sql("DELETE FROM " + table).fetch().rowsUpdated().block();
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.babinkuk.springmvc;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.babinkuk.springmvc.models.GradebookImportResult;
+import com.babinkuk.springmvc.service.GradebookImportService;
+
+import java.nio.file.Paths;
+
+/**
+ * Command line import of a gradebook CSV file, without starting the web server.
+ *
+ * Usage: {@code java -cp <war> -Dloader.main=com.babinkuk.springmvc.GradebookImportApplication
+ * org.springframework.boot.loader.PropertiesLauncher <file.csv>}
+ */
+public class GradebookImportApplication {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 1) {
+			System.err.println("Usage: GradebookImportApplication <file.csv>");
+			System.exit(2);
+		}
+
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MvcTestingExampleApplication.class)
+				.web(WebApplicationType.NONE)
+				.run()) {
+
+			GradebookImportResult result = context.getBean(GradebookImportService.class)
+					.importCsv(Paths.get(args[0]), progress -> System.out.println("progress: " + progress));
+
+			System.out.println("import finished: " + result);
+		}
+	}
+}
@@ -1,16 +1,29 @@
 package com.babinkuk.springmvc;
 
-import org.springframework.beans.factory.annotation.Qualifier;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Scope;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.babinkuk.springmvc.models.*;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableCaching
 public class MvcTestingExampleApplication {
 
+	public static final String STUDENT_INFORMATION_CACHE = "studentInformation";
+
+	public static final String STUDENT_ID_BY_EMAIL_CACHE = "studentIdByEmail";
+
 	public static void main(String[] args) {
 		SpringApplication.run(MvcTestingExampleApplication.class, args);
 	}
@@ -27,25 +40,15 @@ public class MvcTestingExampleApplication {
 		return new MathGrade(grade);
 	}
 
+	// puts and evictions are applied after the surrounding transaction commits
 	@Bean
-	@Scope(value = "prototype")
-	@Qualifier("mathGrades")
-	MathGrade getGrade() {
-		return new MathGrade();
-	}
-
-	@Bean
-	@Scope(value = "prototype")
-	@Qualifier("scienceGrades")
-	ScienceGrade getScienceGrade() {
-		return new ScienceGrade();
-	}
-
-	@Bean
-	@Scope(value = "prototype")
-	@Qualifier("historyGrades")
-	HistoryGrade getHistoryGrade() {
-		return new HistoryGrade();
+	CacheManager cacheManager(@Value("${gradebook.cache.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}") String cacheSpec,
+							  @Value("${gradebook.email-cache.spec:maximumSize=100000,expireAfterWrite=1h,recordStats}") String emailCacheSpec) {
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager(STUDENT_INFORMATION_CACHE);
+		cacheManager.setCacheSpecification(cacheSpec);
+		cacheManager.setAllowNullValues(false);
+		cacheManager.registerCustomCache(STUDENT_ID_BY_EMAIL_CACHE, Caffeine.from(emailCacheSpec).build());
+		return new TransactionAwareCacheManagerProxy(cacheManager);
 	}
 
 }
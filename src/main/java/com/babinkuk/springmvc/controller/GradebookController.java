@@ -1,65 +1,284 @@
 package com.babinkuk.springmvc.controller;
 
+import com.babinkuk.springmvc.exceptionhandling.GradeBatchTooLargeException;
+import com.babinkuk.springmvc.exceptionhandling.StudentAlreadyExistsException;
 import com.babinkuk.springmvc.exceptionhandling.StudentOrGradeErrorResponse;
 import com.babinkuk.springmvc.exceptionhandling.StudentOrGradeNotFoundException;
 import com.babinkuk.springmvc.models.*;
+import com.babinkuk.springmvc.service.GradebookExportService;
+import com.babinkuk.springmvc.service.GradebookImportJobs;
 import com.babinkuk.springmvc.service.StudentAndGradeService;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 public class GradebookController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String GRADEBOOK_PARAM = "gradebook";
+
     @Autowired
     private StudentAndGradeService studentService;
 
+    @Autowired
+    private GradebookImportJobs importJobs;
+
+    @Autowired
+    private GradebookExportService exportService;
+
     @Autowired
     private Gradebook gradebook;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
 
     @RequestMapping(value = "/", method = RequestMethod.GET)
-    public List<GradebookCollegeStudent> getStudents() {
-        gradebook = studentService.getGradebook();
-        return gradebook.getStudents();
+    public ResponseEntity<List<GradebookCollegeStudent>> getStudents(@RequestParam(value = "after", defaultValue = "0") int after,
+                                                                     @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                                                     WebRequest webRequest) {
+
+        // tag is taken before the read, a write racing with it at worst costs the client one extra full response
+        if (webRequest.checkNotModified(studentService.gradebookPageETag(after, limit))) {
+            return null;
+        }
+
+        GradebookPage page = studentService.getGradebookPage(after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+            // the current request's own URI, so context path, proxy headers and other query parameters are kept
+            UriComponentsBuilder next = ServletUriComponentsBuilder.fromCurrentRequest();
+            // a request that left the page size to the default gets it spelled out, the next page has the same size
+            if (webRequest.getParameter("limit") == null) {
+                next.queryParam("limit", limit);
+            }
+            next.replaceQueryParam("after", page.getNextCursor());
+            response.header(HttpHeaders.LINK, "<" + next.toUriString() + ">; rel=\"next\"");
+        }
+
+        return response.body(page.getStudents());
+    }
+
+
+    @GetMapping(value = "/", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStudents() {
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.setRootValueSeparator(null);
+
+            try {
+                studentService.streamGradebook(students -> {
+                    try {
+                        for (GradebookCollegeStudent student : students) {
+                            objectMapper.writeValue(generator, student);
+                            generator.writeRaw('\n');
+                        }
+                        generator.flush();
+                    } catch (IOException exc) {
+                        throw new UncheckedIOException(exc);
+                    }
+                });
+            } catch (UncheckedIOException exc) {
+                throw exc.getCause();
+            }
+
+            generator.close();
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportGradebook(@RequestParam(value = "format", defaultValue = "csv") String format,
+                                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        if (!format.equals("csv") && !format.equals("ndjson")) {
+            throw new IllegalArgumentException("Unknown export format: " + format);
+        }
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream exportStream = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+
+            if (format.equals("csv")) {
+                exportService.exportCsv(exportStream);
+            } else {
+                exportService.exportNdjson(exportStream);
+            }
+
+            if (gzip) {
+                ((GZIPOutputStream) exportStream).finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format.equals("csv") ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"gradebook." + format + "\"")
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return response.body(body);
+    }
+
+    // gzip listed with a non-zero q-value, or not listed and covered by a non-zero "*"
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzipQuality = null;
+        Double anyQuality = null;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.toLowerCase(Locale.ROOT).startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException exc) {
+                        quality = 0.0;
+                    }
+                }
+            }
+
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (name.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+
+
+    @GetMapping("/students/by-email")
+    public StudentEmailLookup findStudentByEmail(@RequestParam("email") String emailAddress) {
+
+        Integer studentId = studentService.findStudentIdByEmail(emailAddress);
+
+        if (studentId == null) {
+            throw new StudentOrGradeNotFoundException("Student or Grade was not found");
+        }
+
+        return new StudentEmailLookup(studentId, StudentAndGradeService.normalizeEmail(emailAddress));
     }
 
 
     @GetMapping("/studentInformation/{id}")
-    public GradebookCollegeStudent studentInformation(@PathVariable int id) {
+    public GradebookCollegeStudent studentInformation(@PathVariable int id, WebRequest webRequest) {
+
+        // a deleted student is a 404, never a 304 for a tag the client still holds
+        Long revision = studentService.studentRevision(id);
 
-        if (!studentService.checkIfStudentIsNull(id)) {
+        if (revision == null) {
+            throw new StudentOrGradeNotFoundException("Student or Grade was not found");
+        }
+
+        if (webRequest.checkNotModified(StudentAndGradeService.studentETag(id, revision))) {
+            return null;
+        }
+
+        // the revision read for the tag also decides whether the cached entry is current
+        GradebookCollegeStudent studentEntity = studentService.studentInformation(id, revision);
+
+        if (studentEntity == null) {
             throw new StudentOrGradeNotFoundException("Student or Grade was not found");
         }
-        GradebookCollegeStudent studentEntity = studentService.studentInformation(id);
 
         return studentEntity;
     }
 
 
+    // answers 201 with the created student; ?gradebook=true returns the whole gradebook as before
     @PostMapping(value = "/")
-    public List<GradebookCollegeStudent> createStudent(@RequestBody CollegeStudent student) {
+    public ResponseEntity<Object> createStudent(@RequestBody CollegeStudent student,
+                                                @RequestParam(value = GRADEBOOK_PARAM, defaultValue = "false") boolean returnGradebook) {
 
-        studentService.createStudent(student.getFirstname(), student.getLastname(), student.getEmailAddress());
-        gradebook = studentService.getGradebook();
-        return gradebook.getStudents();
+        CollegeStudent createdStudent = studentService.createStudent(student.getFirstname(), student.getLastname(), student.getEmailAddress());
+
+        if (returnGradebook) {
+            gradebook = studentService.getGradebook();
+            return ResponseEntity.ok(gradebook.getStudents());
+        }
+
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/studentInformation/{id}").buildAndExpand(createdStudent.getId()).toUri();
+
+        return ResponseEntity.created(location).body(createdStudent);
     }
 
 
+    // answers with the deleted student; ?gradebook=true returns the whole gradebook as before
     @DeleteMapping("/student/{id}")
-    public List<GradebookCollegeStudent> deleteStudent(@PathVariable int id) {
+    public ResponseEntity<Object> deleteStudent(@PathVariable int id,
+                                                @RequestParam(value = GRADEBOOK_PARAM, defaultValue = "false") boolean returnGradebook) {
 
-        if (!studentService.checkIfStudentIsNull(id)) {
+        CollegeStudent deletedStudent = studentService.deleteStudent(id);
+
+        if (deletedStudent == null) {
             throw new StudentOrGradeNotFoundException("Student or Grade was not found");
         }
 
-        studentService.deleteStudent(id);
-        gradebook = studentService.getGradebook();
-        return gradebook.getStudents();
+        if (returnGradebook) {
+            gradebook = studentService.getGradebook();
+            return ResponseEntity.ok(gradebook.getStudents());
+        }
+
+        return ResponseEntity.ok(deletedStudent);
+    }
+
+    // deletes a whole class with its grades; ids without a student are listed in the summary
+    @DeleteMapping("/students")
+    public StudentDeleteSummary deleteStudents(@RequestBody List<Integer> ids) {
+
+        return studentService.deleteStudents(ids);
     }
 
 
@@ -87,6 +306,47 @@ public class GradebookController {
         return studentEntity;
     }
 
+    @PostMapping(value = "/grades/batch")
+    public GradeBatchSummary createGrades(@RequestBody List<GradeBatchItem> grades) {
+
+        return studentService.createGrades(grades);
+    }
+
+    // answers 202 with the job at once; the import runs in the background, GET /import/{id} reports its progress
+    @PostMapping(value = "/import")
+    public ResponseEntity<GradebookImportJob> importGradebook(@RequestParam("file") MultipartFile file) throws IOException {
+
+        // the parser memory-maps the upload, so it has to be on disk
+        Path csvFile = Files.createTempFile("gradebook-import", ".csv");
+
+        try {
+            file.transferTo(csvFile);
+        } catch (IOException | RuntimeException exc) {
+            Files.deleteIfExists(csvFile);
+            throw exc;
+        }
+
+        GradebookImportJob job = importJobs.submit(csvFile);
+
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/import/{id}").buildAndExpand(job.getId()).toUri();
+
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+
+    @GetMapping("/import/{id}")
+    public ResponseEntity<GradebookImportJob> importJob(@PathVariable String id) {
+
+        GradebookImportJob job = importJobs.get(id);
+
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(job);
+    }
+
     @DeleteMapping("/grades/{id}/{gradeType}")
     public GradebookCollegeStudent deleteGrade(@PathVariable int id, @PathVariable String gradeType) {
 
@@ -101,6 +361,49 @@ public class GradebookController {
         return studentEntity;
     }
 
+    @GetMapping("/stats")
+    public Map<String, SubjectStatistics> getClassStatistics() {
+
+        return studentService.getClassStatistics();
+    }
+
+    @GetMapping("/stats/{gradeType}")
+    public SubjectStatistics getSubjectStatistics(@PathVariable String gradeType) {
+
+        SubjectStatistics statistics = studentService.getSubjectStatistics(gradeType);
+
+        if (statistics == null) {
+            throw new StudentOrGradeNotFoundException("Grade type was not found");
+        }
+
+        return statistics;
+    }
+
+    @GetMapping("/leaderboard/{gradeType}")
+    public List<StudentRank> getLeaderboard(@PathVariable String gradeType,
+                                            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+
+        List<StudentRank> leaderboard = studentService.getLeaderboard(gradeType, limit);
+
+        if (leaderboard == null) {
+            throw new StudentOrGradeNotFoundException("Grade type was not found");
+        }
+
+        return leaderboard;
+    }
+
+    @GetMapping("/leaderboard/{gradeType}/{studentId}")
+    public StudentRank getStudentRank(@PathVariable String gradeType, @PathVariable int studentId) {
+
+        StudentRank rank = studentService.getStudentRank(studentId, gradeType);
+
+        if (rank == null) {
+            throw new StudentOrGradeNotFoundException("Student or Grade was not found");
+        }
+
+        return rank;
+    }
+
     @ExceptionHandler
     public ResponseEntity<StudentOrGradeErrorResponse> handleException(StudentOrGradeNotFoundException exc) {
 
@@ -113,6 +416,43 @@ public class GradebookController {
         return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler
+    public ResponseEntity<StudentOrGradeErrorResponse> handleException(StudentAlreadyExistsException exc) {
+
+        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
+
+        error.setStatus(HttpStatus.CONFLICT.value());
+        error.setMessage(exc.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<StudentOrGradeErrorResponse> handleException(GradeBatchTooLargeException exc) {
+
+        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
+
+        error.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+        error.setMessage(exc.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    // the database did not answer in time, e.g. a parallel studentInformation load; not the client's fault
+    @ExceptionHandler
+    public ResponseEntity<StudentOrGradeErrorResponse> handleException(QueryTimeoutException exc) {
+
+        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
+
+        error.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        error.setMessage(exc.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler
     public ResponseEntity<StudentOrGradeErrorResponse> handleException(Exception exc) {
 
@@ -0,0 +1,16 @@
+package com.babinkuk.springmvc.exceptionhandling;
+
+public class GradeBatchTooLargeException extends RuntimeException {
+
+    public GradeBatchTooLargeException(String message) {
+        super(message);
+    }
+
+    public GradeBatchTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public GradeBatchTooLargeException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -3,10 +3,14 @@ package com.babinkuk.springmvc.models;
 import javax.persistence.*;
 
 @Entity
-@Table(name = "student")
+@Table(name = "student", uniqueConstraints = @UniqueConstraint(name = CollegeStudent.EMAIL_ADDRESS_CONSTRAINT, columnNames = "email_address"))
 public class CollegeStudent implements Student {
+
+    public static final String EMAIL_ADDRESS_CONSTRAINT = "uk_student_email_address";
+
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "student_seq", initialValue = 1000, allocationSize = 50)
     private int id;
     @Column
     private String firstname;
@@ -14,6 +18,9 @@ public class CollegeStudent implements Student {
     private String lastname;
     @Column(name="email_address")
     private String emailAddress;
+    // bumped in the database by every write to the student or its grades, never written through the entity
+    @Column(name = "revision", nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long revision;
 
     public CollegeStudent() {
 
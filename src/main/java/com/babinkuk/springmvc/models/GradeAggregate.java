@@ -0,0 +1,12 @@
+package com.babinkuk.springmvc.models;
+
+public interface GradeAggregate {
+
+    public long getGradeCount();
+
+    public Double getGradeSum();
+
+    public Double getMinGrade();
+
+    public Double getMaxGrade();
+}
@@ -0,0 +1,54 @@
+package com.babinkuk.springmvc.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GradeBatchSummary {
+
+    private int received;
+
+    private int created;
+
+    private Map<String, Integer> createdByGradeType = new LinkedHashMap<>();
+
+    // positions in the request array that were not inserted (unknown student, grade type or grade out of range)
+    private List<Integer> rejected = new ArrayList<>();
+
+    public GradeBatchSummary() {
+
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public void setReceived(int received) {
+        this.received = received;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public Map<String, Integer> getCreatedByGradeType() {
+        return createdByGradeType;
+    }
+
+    public void setCreatedByGradeType(Map<String, Integer> createdByGradeType) {
+        this.createdByGradeType = createdByGradeType;
+    }
+
+    public List<Integer> getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(List<Integer> rejected) {
+        this.rejected = rejected;
+    }
+}
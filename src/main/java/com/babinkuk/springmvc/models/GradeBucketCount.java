@@ -0,0 +1,9 @@
+package com.babinkuk.springmvc.models;
+
+public interface GradeBucketCount {
+
+    // floor(grade / SubjectStatistics.BUCKET_WIDTH), a grade of 100 lands in an extra bucket of its own
+    public int getBucket();
+
+    public long getGradeCount();
+}
@@ -0,0 +1,63 @@
+package com.babinkuk.springmvc.models;
+
+import java.util.Objects;
+
+/**
+ * Read-only copy of a single grade, detached from the persistence context.
+ */
+public final class GradeSnapshot {
+
+    private final int id;
+
+    private final int studentId;
+
+    private final double grade;
+
+    public GradeSnapshot(int id, int studentId, double grade) {
+        this.id = id;
+        this.studentId = studentId;
+        this.grade = grade;
+    }
+
+    public static GradeSnapshot of(Grade grade) {
+        return new GradeSnapshot(grade.getId(), grade.getStudentId(), grade.getGrade());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public double getGrade() {
+        return grade;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GradeSnapshot)) {
+            return false;
+        }
+        GradeSnapshot that = (GradeSnapshot) o;
+        return id == that.id && studentId == that.studentId && Double.compare(grade, that.grade) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, studentId, grade);
+    }
+
+    @Override
+    public String toString() {
+        return "GradeSnapshot{" +
+                "id=" + id +
+                ", studentId=" + studentId +
+                ", grade=" + grade +
+                '}';
+    }
+}
@@ -1,11 +1,16 @@
 package com.babinkuk.springmvc.models;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class GradebookCollegeStudent extends CollegeStudent{
 
     private int id;
 
     private StudentGrades studentGrades;
 
+    private Map<String, StudentSubjectStats> subjectStats = new HashMap<>();
+
     public GradebookCollegeStudent(String firstname, String lastname, String emailAddress) {
         super(firstname, lastname, emailAddress);
     }
@@ -24,6 +29,14 @@ public class GradebookCollegeStudent extends CollegeStudent{
         this.studentGrades = studentGrades;
     }
 
+    public Map<String, StudentSubjectStats> getSubjectStats() {
+        return subjectStats;
+    }
+
+    public void setSubjectStats(Map<String, StudentSubjectStats> subjectStats) {
+        this.subjectStats = subjectStats;
+    }
+
     @Override
     public int getId() {
         return id;
@@ -0,0 +1,60 @@
+package com.babinkuk.springmvc.models;
+
+/**
+ * A CSV import running in the background. The result is replaced after every committed chunk,
+ * readers on other threads always see a complete snapshot.
+ */
+public class GradebookImportJob {
+
+    public enum Status { RUNNING, DONE, FAILED }
+
+    private final String id;
+
+    private volatile Status status = Status.RUNNING;
+
+    private volatile GradebookImportResult result = new GradebookImportResult();
+
+    private volatile String error;
+
+    public GradebookImportJob(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public GradebookImportResult getResult() {
+        return result;
+    }
+
+    public void setResult(GradebookImportResult result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "GradebookImportJob{" +
+                "id='" + id + '\'' +
+                ", status=" + status +
+                ", result=" + result +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,85 @@
+package com.babinkuk.springmvc.models;
+
+public class GradebookImportResult {
+
+    private long rows;
+
+    private long students;
+
+    private long grades;
+
+    private long rejected;
+
+    private long elapsedMillis;
+
+    public GradebookImportResult() {
+
+    }
+
+    public GradebookImportResult(GradebookImportResult other) {
+        this.rows = other.rows;
+        this.students = other.students;
+        this.grades = other.grades;
+        this.rejected = other.rejected;
+        this.elapsedMillis = other.elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        if (elapsedMillis == 0) {
+            return rows;
+        }
+        return rows * 1000.0 / elapsedMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public long getStudents() {
+        return students;
+    }
+
+    public void setStudents(long students) {
+        this.students = students;
+    }
+
+    public long getGrades() {
+        return grades;
+    }
+
+    public void setGrades(long grades) {
+        this.grades = grades;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "GradebookImportResult{" +
+                "rows=" + rows +
+                ", students=" + students +
+                ", grades=" + grades +
+                ", rejected=" + rejected +
+                ", elapsedMillis=" + elapsedMillis +
+                ", rowsPerSecond=" + Math.round(getRowsPerSecond()) +
+                '}';
+    }
+}
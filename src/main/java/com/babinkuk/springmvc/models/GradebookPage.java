@@ -0,0 +1,36 @@
+package com.babinkuk.springmvc.models;
+
+import java.util.List;
+
+public class GradebookPage {
+
+    private List<GradebookCollegeStudent> students;
+
+    // id of the last student on this page, null when there are no more pages
+    private Integer nextCursor;
+
+    public GradebookPage() {
+
+    }
+
+    public GradebookPage(List<GradebookCollegeStudent> students, Integer nextCursor) {
+        this.students = students;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<GradebookCollegeStudent> getStudents() {
+        return students;
+    }
+
+    public void setStudents(List<GradebookCollegeStudent> students) {
+        this.students = students;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -6,7 +6,8 @@ import javax.persistence.*;
 @Table(name = "history_grade")
 public class HistoryGrade implements Grade {
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "history_grade_seq")
+    @SequenceGenerator(name = "history_grade_seq", sequenceName = "history_grade_seq", initialValue = 1000, allocationSize = 50)
     private int id;
     @Column(name="student_id")
     private int studentId;
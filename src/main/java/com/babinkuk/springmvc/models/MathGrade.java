@@ -6,7 +6,8 @@ import javax.persistence.*;
 @Table(name = "math_grade")
 public class MathGrade implements Grade {
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "math_grade_seq")
+    @SequenceGenerator(name = "math_grade_seq", sequenceName = "math_grade_seq", initialValue = 1000, allocationSize = 50)
     private int id;
     @Column(name="student_id")
     private int studentId;
@@ -6,7 +6,8 @@ import javax.persistence.*;
 @Table(name = "science_grade")
 public class ScienceGrade implements Grade {
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "science_grade_seq")
+    @SequenceGenerator(name = "science_grade_seq", sequenceName = "science_grade_seq", initialValue = 1000, allocationSize = 50)
     private int id;
     @Column(name="student_id")
     private int studentId;
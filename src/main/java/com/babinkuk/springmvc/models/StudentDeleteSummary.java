@@ -0,0 +1,52 @@
+package com.babinkuk.springmvc.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StudentDeleteSummary {
+
+    private int received;
+
+    private int deleted;
+
+    private int gradesDeleted;
+
+    // requested ids without a student
+    private List<Integer> notFound = new ArrayList<>();
+
+    public StudentDeleteSummary() {
+
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public void setReceived(int received) {
+        this.received = received;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(int deleted) {
+        this.deleted = deleted;
+    }
+
+    public int getGradesDeleted() {
+        return gradesDeleted;
+    }
+
+    public void setGradesDeleted(int gradesDeleted) {
+        this.gradesDeleted = gradesDeleted;
+    }
+
+    public List<Integer> getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(List<Integer> notFound) {
+        this.notFound = notFound;
+    }
+}
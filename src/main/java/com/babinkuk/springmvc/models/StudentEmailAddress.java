@@ -0,0 +1,8 @@
+package com.babinkuk.springmvc.models;
+
+public interface StudentEmailAddress {
+
+    public int getId();
+
+    public String getEmailAddress();
+}
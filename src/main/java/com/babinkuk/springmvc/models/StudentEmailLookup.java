@@ -0,0 +1,24 @@
+package com.babinkuk.springmvc.models;
+
+/**
+ * Answer of the email lookup, the student id for a normalized email address.
+ */
+public final class StudentEmailLookup {
+
+    private final int id;
+
+    private final String emailAddress;
+
+    public StudentEmailLookup(int id, String emailAddress) {
+        this.id = id;
+        this.emailAddress = emailAddress;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getEmailAddress() {
+        return emailAddress;
+    }
+}
@@ -0,0 +1,27 @@
+package com.babinkuk.springmvc.models;
+
+public interface StudentGradeRow {
+
+    public int getStudentId();
+
+    public String getFirstname();
+
+    public String getLastname();
+
+    public String getEmailAddress();
+
+    public String getGradeType();
+
+    public Integer getGradeId();
+
+    public Double getGrade();
+
+    // set on aggregate rows only, which have no grade id
+    public Integer getGradeCount();
+
+    public Double getGradeSum();
+
+    public Double getMinGrade();
+
+    public Double getMaxGrade();
+}
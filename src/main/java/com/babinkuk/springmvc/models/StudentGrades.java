@@ -1,70 +1,61 @@
 package com.babinkuk.springmvc.models;
 
-import org.springframework.stereotype.Component;
+import com.babinkuk.springmvc.util.GradeRounding;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.List;
 
-@Component
-public class StudentGrades {
+/**
+ * Immutable snapshot of one student's grades, built per student and safe to share between threads and caches.
+ */
+public final class StudentGrades {
 
-    List<Grade> mathGradeResults;
+    private final List<GradeSnapshot> mathGradeResults;
 
-    List<Grade> scienceGradeResults;
+    private final List<GradeSnapshot> scienceGradeResults;
 
-    List<Grade> historyGradeResults;
+    private final List<GradeSnapshot> historyGradeResults;
 
-    public StudentGrades() {}
+    public StudentGrades(List<GradeSnapshot> mathGradeResults, List<GradeSnapshot> scienceGradeResults,
+                         List<GradeSnapshot> historyGradeResults) {
+        this.mathGradeResults = List.copyOf(mathGradeResults);
+        this.scienceGradeResults = List.copyOf(scienceGradeResults);
+        this.historyGradeResults = List.copyOf(historyGradeResults);
+    }
 
-    public double addGradeResultsForSingleClass(List<Grade> grades) {
+    public double addGradeResultsForSingleClass(List<GradeSnapshot> grades) {
         double result = 0;
-        for (Grade i : grades) {
+        for (GradeSnapshot i : grades) {
             result += i.getGrade();
         }
         return result;
     }
 
-    public double findGradePointAverage (List<Grade> grades ) {
+    public double findGradePointAverage (List<GradeSnapshot> grades ) {
         int lengthOfGrades = grades.size();
         double sum = addGradeResultsForSingleClass(grades);
         double result = sum / lengthOfGrades;
 
-        // add a round function
-        BigDecimal resultRound = BigDecimal.valueOf(result);
-        resultRound = resultRound.setScale(2, RoundingMode.HALF_UP);
-        return resultRound.doubleValue();
-
+        return GradeRounding.roundHalfUp(result);
     }
 
-    public List<Grade> getMathGradeResults() {
+    public List<GradeSnapshot> getMathGradeResults() {
         return mathGradeResults;
     }
 
-    public void setMathGradeResults(List<Grade> mathGradeResults) {
-        this.mathGradeResults = mathGradeResults;
-    }
-
-    public List<Grade> getScienceGradeResults() {
+    public List<GradeSnapshot> getScienceGradeResults() {
         return scienceGradeResults;
     }
 
-    public void setScienceGradeResults(List<Grade> scienceGradeResults) {
-        this.scienceGradeResults = scienceGradeResults;
-    }
-
-    public List<Grade> getHistoryGradeResults() {
+    public List<GradeSnapshot> getHistoryGradeResults() {
         return historyGradeResults;
     }
 
-    public void setHistoryGradeResults(List<Grade> historyGradeResults) {
-        this.historyGradeResults = historyGradeResults;
-    }
-
     @Override
     public String toString() {
         return "StudentGrades{" +
                 "mathGradeResults=" + mathGradeResults +
+                ", scienceGradeResults=" + scienceGradeResults +
+                ", historyGradeResults=" + historyGradeResults +
                 '}';
     }
 }
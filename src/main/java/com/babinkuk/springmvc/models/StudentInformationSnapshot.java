@@ -0,0 +1,88 @@
+package com.babinkuk.springmvc.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable copy of a student's information as kept in the studentInformation cache.
+ *
+ * Holds no entities; every reader gets a fresh {@link GradebookCollegeStudent} built from it,
+ * so nothing a caller does to its copy can change the cached entry.
+ */
+public final class StudentInformationSnapshot {
+
+    private final long revision;
+
+    private final int id;
+
+    private final String firstname;
+
+    private final String lastname;
+
+    private final String emailAddress;
+
+    private final StudentGrades studentGrades;
+
+    private final Map<String, SubjectStats> subjectStats;
+
+    private StudentInformationSnapshot(long revision, GradebookCollegeStudent student) {
+        this.revision = revision;
+        this.id = student.getId();
+        this.firstname = student.getFirstname();
+        this.lastname = student.getLastname();
+        this.emailAddress = student.getEmailAddress();
+        this.studentGrades = student.getStudentGrades();
+        Map<String, SubjectStats> stats = new HashMap<>();
+        for (StudentSubjectStats subjectStats : student.getSubjectStats().values()) {
+            stats.put(subjectStats.getGradeType(), new SubjectStats(subjectStats));
+        }
+        this.subjectStats = Map.copyOf(stats);
+    }
+
+    // revision is the student's revision read before the data was loaded
+    public static StudentInformationSnapshot of(long revision, GradebookCollegeStudent student) {
+        return new StudentInformationSnapshot(revision, student);
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public GradebookCollegeStudent toGradebookCollegeStudent() {
+        GradebookCollegeStudent student = new GradebookCollegeStudent(id, firstname, lastname, emailAddress, studentGrades);
+        for (SubjectStats stats : subjectStats.values()) {
+            student.getSubjectStats().put(stats.gradeType, stats.toStudentSubjectStats(id));
+        }
+        return student;
+    }
+
+    private static final class SubjectStats {
+
+        private final String gradeType;
+
+        private final int gradeCount;
+
+        private final double gradeSum;
+
+        private final double minGrade;
+
+        private final double maxGrade;
+
+        SubjectStats(StudentSubjectStats stats) {
+            this.gradeType = stats.getGradeType();
+            this.gradeCount = stats.getGradeCount();
+            this.gradeSum = stats.getGradeSum();
+            this.minGrade = stats.getMinGrade();
+            this.maxGrade = stats.getMaxGrade();
+        }
+
+        StudentSubjectStats toStudentSubjectStats(int studentId) {
+            StudentSubjectStats stats = new StudentSubjectStats(studentId, gradeType);
+            stats.setGradeCount(gradeCount);
+            stats.setGradeSum(gradeSum);
+            stats.setMinGrade(minGrade);
+            stats.setMaxGrade(maxGrade);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.babinkuk.springmvc.models;
+
+/**
+ * A student's place in one subject, ordered by average grade.
+ *
+ * Equal averages share a rank (1, 2, 2, 4). The percentile is the share of ranked students below,
+ * counting ties as half.
+ */
+public final class StudentRank {
+
+    private final int studentId;
+
+    private final String gradeType;
+
+    private final double average;
+
+    private final int rank;
+
+    private final double percentile;
+
+    private final int rankedStudents;
+
+    public StudentRank(int studentId, String gradeType, double average, int rank, double percentile, int rankedStudents) {
+        this.studentId = studentId;
+        this.gradeType = gradeType;
+        this.average = average;
+        this.rank = rank;
+        this.percentile = percentile;
+        this.rankedStudents = rankedStudents;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public String getGradeType() {
+        return gradeType;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public int getRankedStudents() {
+        return rankedStudents;
+    }
+
+    @Override
+    public String toString() {
+        return "StudentRank{" +
+                "studentId=" + studentId +
+                ", gradeType='" + gradeType + '\'' +
+                ", average=" + average +
+                ", rank=" + rank +
+                ", percentile=" + percentile +
+                ", rankedStudents=" + rankedStudents +
+                '}';
+    }
+}
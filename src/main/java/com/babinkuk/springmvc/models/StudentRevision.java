@@ -0,0 +1,8 @@
+package com.babinkuk.springmvc.models;
+
+public interface StudentRevision {
+
+    public int getId();
+
+    public long getRevision();
+}
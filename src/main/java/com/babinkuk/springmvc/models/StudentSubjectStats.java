@@ -0,0 +1,110 @@
+package com.babinkuk.springmvc.models;
+
+import com.babinkuk.springmvc.util.GradeRounding;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "student_subject_stats")
+@IdClass(StudentSubjectStatsId.class)
+public class StudentSubjectStats {
+    @Id
+    @Column(name="student_id")
+    private int studentId;
+    @Id
+    @Column(name="grade_type")
+    private String gradeType;
+    @Column(name="grade_count")
+    private int gradeCount;
+    @Column(name="grade_sum")
+    private double gradeSum;
+    @Column(name="min_grade")
+    private double minGrade;
+    @Column(name="max_grade")
+    private double maxGrade;
+
+    public StudentSubjectStats() {
+
+    }
+
+    public StudentSubjectStats(int studentId, String gradeType) {
+        this.studentId = studentId;
+        this.gradeType = gradeType;
+    }
+
+    public void addGrade(double grade) {
+        if (gradeCount == 0 || grade < minGrade) {
+            minGrade = grade;
+        }
+        if (gradeCount == 0 || grade > maxGrade) {
+            maxGrade = grade;
+        }
+        gradeCount++;
+        gradeSum += grade;
+    }
+
+    // min and max cannot be maintained when the removed grade was one of them, the caller has to recompute
+    public boolean removeGrade(double grade) {
+        if (gradeCount <= 1 || grade <= minGrade || grade >= maxGrade) {
+            return false;
+        }
+        gradeCount--;
+        gradeSum -= grade;
+        return true;
+    }
+
+    public double getAverage() {
+        if (gradeCount == 0) {
+            return 0;
+        }
+        return GradeRounding.roundHalfUp(gradeSum / gradeCount);
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(int studentId) {
+        this.studentId = studentId;
+    }
+
+    public String getGradeType() {
+        return gradeType;
+    }
+
+    public void setGradeType(String gradeType) {
+        this.gradeType = gradeType;
+    }
+
+    public int getGradeCount() {
+        return gradeCount;
+    }
+
+    public void setGradeCount(int gradeCount) {
+        this.gradeCount = gradeCount;
+    }
+
+    public double getGradeSum() {
+        return gradeSum;
+    }
+
+    public void setGradeSum(double gradeSum) {
+        this.gradeSum = gradeSum;
+    }
+
+    public double getMinGrade() {
+        return minGrade;
+    }
+
+    public void setMinGrade(double minGrade) {
+        this.minGrade = minGrade;
+    }
+
+    public double getMaxGrade() {
+        return maxGrade;
+    }
+
+    public void setMaxGrade(double maxGrade) {
+        this.maxGrade = maxGrade;
+    }
+}
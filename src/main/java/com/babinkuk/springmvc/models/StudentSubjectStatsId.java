@@ -0,0 +1,45 @@
+package com.babinkuk.springmvc.models;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class StudentSubjectStatsId implements Serializable {
+
+    private int studentId;
+
+    private String gradeType;
+
+    public StudentSubjectStatsId() {
+
+    }
+
+    public StudentSubjectStatsId(int studentId, String gradeType) {
+        this.studentId = studentId;
+        this.gradeType = gradeType;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public String getGradeType() {
+        return gradeType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StudentSubjectStatsId)) {
+            return false;
+        }
+        StudentSubjectStatsId that = (StudentSubjectStatsId) o;
+        return studentId == that.studentId && Objects.equals(gradeType, that.gradeType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(studentId, gradeType);
+    }
+}
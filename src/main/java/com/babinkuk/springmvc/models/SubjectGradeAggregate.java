@@ -0,0 +1,6 @@
+package com.babinkuk.springmvc.models;
+
+public interface SubjectGradeAggregate extends GradeAggregate {
+
+    public Double getGradeStandardDeviation();
+}
@@ -0,0 +1,90 @@
+package com.babinkuk.springmvc.models;
+
+/**
+ * Class-wide statistics of one subject. Mean, min, max and standard deviation are null when there are no grades.
+ */
+public class SubjectStatistics {
+
+    public static final int BUCKETS = 10;
+
+    public static final int BUCKET_WIDTH = 10;
+
+    private String gradeType;
+
+    private long count;
+
+    private Double mean;
+
+    private Double min;
+
+    private Double max;
+
+    private Double standardDeviation;
+
+    // histogram[i] counts grades in [10 * i, 10 * i + 10), the last bucket also holds 100
+    private long[] histogram = new long[BUCKETS];
+
+    public SubjectStatistics() {
+
+    }
+
+    public SubjectStatistics(String gradeType) {
+        this.gradeType = gradeType;
+    }
+
+    public String getGradeType() {
+        return gradeType;
+    }
+
+    public void setGradeType(String gradeType) {
+        this.gradeType = gradeType;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public void setMean(Double mean) {
+        this.mean = mean;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    public Double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public void setStandardDeviation(Double standardDeviation) {
+        this.standardDeviation = standardDeviation;
+    }
+
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(long[] histogram) {
+        this.histogram = histogram;
+    }
+}
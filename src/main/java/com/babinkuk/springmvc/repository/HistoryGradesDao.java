@@ -1,14 +1,40 @@
 package com.babinkuk.springmvc.repository;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.babinkuk.springmvc.models.GradeAggregate;
+import com.babinkuk.springmvc.models.GradeBucketCount;
 import com.babinkuk.springmvc.models.HistoryGrade;
+import com.babinkuk.springmvc.models.SubjectGradeAggregate;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface HistoryGradesDao extends CrudRepository<HistoryGrade, Integer> {
 
     public Iterable<HistoryGrade> findGradeByStudentId (int id);
 
-    public void deleteByStudentId(int id);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM HistoryGrade g WHERE g.studentId IN :studentIds")
+    public int deleteByStudentIdIn(@Param("studentIds") Collection<Integer> studentIds);
+
+    public List<HistoryGrade> findByStudentIdIn(Collection<Integer> studentIds);
+
+    @Query("SELECT COUNT(g) AS gradeCount, SUM(g.grade) AS gradeSum, MIN(g.grade) AS minGrade, MAX(g.grade) AS maxGrade "
+            + "FROM HistoryGrade g WHERE g.studentId = :studentId")
+    public GradeAggregate aggregateByStudentId(@Param("studentId") int studentId);
+
+    // the population standard deviation comes from the database, which does not lose precision the way
+    // sum of squares minus squared sum does
+    @Query(value = "SELECT COUNT(*) AS gradeCount, SUM(grade) AS gradeSum, STDDEV_POP(grade) AS gradeStandardDeviation, "
+            + "MIN(grade) AS minGrade, MAX(grade) AS maxGrade FROM history_grade", nativeQuery = true)
+    public SubjectGradeAggregate aggregateAll();
+
+    @Query("SELECT FLOOR(g.grade / 10) AS bucket, COUNT(g) AS gradeCount FROM HistoryGrade g GROUP BY FLOOR(g.grade / 10)")
+    public List<GradeBucketCount> countByBucket();
 }
@@ -1,14 +1,41 @@
 package com.babinkuk.springmvc.repository;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.babinkuk.springmvc.models.GradeAggregate;
+import com.babinkuk.springmvc.models.GradeBucketCount;
 import com.babinkuk.springmvc.models.MathGrade;
+import com.babinkuk.springmvc.models.SubjectGradeAggregate;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface MathGradesDao extends CrudRepository<MathGrade, Integer> {
 
     public Iterable<MathGrade> findGradeByStudentId (int id);
 
-    public void deleteByStudentId(int id);
+    // one statement, the derived deleteBy query would load and remove every grade on its own
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM MathGrade g WHERE g.studentId IN :studentIds")
+    public int deleteByStudentIdIn(@Param("studentIds") Collection<Integer> studentIds);
+
+    public List<MathGrade> findByStudentIdIn(Collection<Integer> studentIds);
+
+    @Query("SELECT COUNT(g) AS gradeCount, SUM(g.grade) AS gradeSum, MIN(g.grade) AS minGrade, MAX(g.grade) AS maxGrade "
+            + "FROM MathGrade g WHERE g.studentId = :studentId")
+    public GradeAggregate aggregateByStudentId(@Param("studentId") int studentId);
+
+    // the population standard deviation comes from the database, which does not lose precision the way
+    // sum of squares minus squared sum does
+    @Query(value = "SELECT COUNT(*) AS gradeCount, SUM(grade) AS gradeSum, STDDEV_POP(grade) AS gradeStandardDeviation, "
+            + "MIN(grade) AS minGrade, MAX(grade) AS maxGrade FROM math_grade", nativeQuery = true)
+    public SubjectGradeAggregate aggregateAll();
+
+    @Query("SELECT FLOOR(g.grade / 10) AS bucket, COUNT(g) AS gradeCount FROM MathGrade g GROUP BY FLOOR(g.grade / 10)")
+    public List<GradeBucketCount> countByBucket();
 }
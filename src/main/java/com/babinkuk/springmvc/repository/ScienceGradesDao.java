@@ -1,14 +1,40 @@
 package com.babinkuk.springmvc.repository;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.babinkuk.springmvc.models.GradeAggregate;
+import com.babinkuk.springmvc.models.GradeBucketCount;
 import com.babinkuk.springmvc.models.ScienceGrade;
+import com.babinkuk.springmvc.models.SubjectGradeAggregate;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface ScienceGradesDao extends CrudRepository<ScienceGrade, Integer> {
 
     public Iterable<ScienceGrade> findGradeByStudentId (int id);
 
-    public void deleteByStudentId(int id);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM ScienceGrade g WHERE g.studentId IN :studentIds")
+    public int deleteByStudentIdIn(@Param("studentIds") Collection<Integer> studentIds);
+
+    public List<ScienceGrade> findByStudentIdIn(Collection<Integer> studentIds);
+
+    @Query("SELECT COUNT(g) AS gradeCount, SUM(g.grade) AS gradeSum, MIN(g.grade) AS minGrade, MAX(g.grade) AS maxGrade "
+            + "FROM ScienceGrade g WHERE g.studentId = :studentId")
+    public GradeAggregate aggregateByStudentId(@Param("studentId") int studentId);
+
+    // the population standard deviation comes from the database, which does not lose precision the way
+    // sum of squares minus squared sum does
+    @Query(value = "SELECT COUNT(*) AS gradeCount, SUM(grade) AS gradeSum, STDDEV_POP(grade) AS gradeStandardDeviation, "
+            + "MIN(grade) AS minGrade, MAX(grade) AS maxGrade FROM science_grade", nativeQuery = true)
+    public SubjectGradeAggregate aggregateAll();
+
+    @Query("SELECT FLOOR(g.grade / 10) AS bucket, COUNT(g) AS gradeCount FROM ScienceGrade g GROUP BY FLOOR(g.grade / 10)")
+    public List<GradeBucketCount> countByBucket();
 }
@@ -1,12 +1,71 @@
 package com.babinkuk.springmvc.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.babinkuk.springmvc.models.CollegeStudent;
+import com.babinkuk.springmvc.models.StudentEmailAddress;
+import com.babinkuk.springmvc.models.StudentGradeRow;
+import com.babinkuk.springmvc.models.StudentRevision;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface StudentDao extends CrudRepository<CollegeStudent, Integer> {
 
     public CollegeStudent findByEmailAddress(String emailAddress);
+
+    public List<CollegeStudent> findByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+    // the student row lock serializes every writer of the student's grades and subject aggregates,
+    // an aggregate row that does not exist yet cannot be locked itself
+    @Query(value = "SELECT id FROM student WHERE id = :id FOR UPDATE", nativeQuery = true)
+    public Integer lockById(@Param("id") int id);
+
+    // locked in id order, so writers of overlapping sets of students cannot deadlock
+    @Query(value = "SELECT id FROM student WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    public List<Integer> lockByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // what a delete needs to evict, without loading the students
+    @Query(value = "SELECT id AS id, email_address AS emailAddress FROM student WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    public List<StudentEmailAddress> lockEmailAddressesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(value = "SELECT id FROM student WHERE id > :after ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    public List<Integer> lockPageAfter(@Param("after") int after, @Param("limit") int limit);
+
+    @Query(value = "SELECT revision FROM student WHERE id = :id", nativeQuery = true)
+    public Long findRevisionById(@Param("id") int id);
+
+    @Query(value = "SELECT id AS id, revision AS revision FROM student WHERE id > :after ORDER BY id LIMIT :limit", nativeQuery = true)
+    public List<StudentRevision> findRevisionsAfter(@Param("after") int after, @Param("limit") int limit);
+
+    // callers hold the student row locks, the revision is never written through the entity
+    @Modifying
+    @Query(value = "UPDATE student SET revision = revision + 1 WHERE id IN (:ids)", nativeQuery = true)
+    public int incrementRevisionByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CollegeStudent s WHERE s.id IN :ids")
+    public int deleteByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // one row per grade and one per subject aggregate (or a single row with null grade columns),
+    // empty when the student does not exist
+    @Query(value = "SELECT s.id AS studentId, s.firstname AS firstname, s.lastname AS lastname, s.email_address AS emailAddress, "
+            + "g.grade_type AS gradeType, g.id AS gradeId, g.grade AS grade, "
+            + "g.grade_count AS gradeCount, g.grade_sum AS gradeSum, g.min_grade AS minGrade, g.max_grade AS maxGrade "
+            + "FROM student s LEFT JOIN ("
+            + "SELECT 'math' AS grade_type, id, student_id, grade, NULL AS grade_count, NULL AS grade_sum, NULL AS min_grade, NULL AS max_grade "
+            + "FROM math_grade WHERE student_id = :id "
+            + "UNION ALL SELECT 'science', id, student_id, grade, NULL, NULL, NULL, NULL FROM science_grade WHERE student_id = :id "
+            + "UNION ALL SELECT 'history', id, student_id, grade, NULL, NULL, NULL, NULL FROM history_grade WHERE student_id = :id "
+            + "UNION ALL SELECT grade_type, NULL, student_id, NULL, grade_count, grade_sum, min_grade, max_grade "
+            + "FROM student_subject_stats WHERE student_id = :id"
+            + ") g ON g.student_id = s.id "
+            + "WHERE s.id = :id ORDER BY g.id", nativeQuery = true)
+    public List<StudentGradeRow> findStudentWithGradesAndStatsById(@Param("id") int id);
 }
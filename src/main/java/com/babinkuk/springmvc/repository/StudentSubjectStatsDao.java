@@ -0,0 +1,46 @@
+package com.babinkuk.springmvc.repository;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.babinkuk.springmvc.models.StudentSubjectStats;
+import com.babinkuk.springmvc.models.StudentSubjectStatsId;
+
+import javax.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StudentSubjectStatsDao extends CrudRepository<StudentSubjectStats, StudentSubjectStatsId> {
+
+    public List<StudentSubjectStats> findByStudentId(int studentId);
+
+    public List<StudentSubjectStats> findByStudentIdIn(Collection<Integer> studentIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    public Optional<StudentSubjectStats> findByStudentIdAndGradeType(int studentId, String gradeType);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM StudentSubjectStats s WHERE s.studentId IN :studentIds")
+    public int deleteByStudentIdIn(@Param("studentIds") Collection<Integer> studentIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO student_subject_stats (student_id, grade_type, grade_count, grade_sum, min_grade, max_grade) "
+            + "SELECT student_id, grade_type, COUNT(*), SUM(grade), MIN(grade), MAX(grade) FROM ("
+            + "SELECT student_id, 'math' AS grade_type, grade FROM math_grade WHERE student_id IN (:studentIds) "
+            + "UNION ALL SELECT student_id, 'science' AS grade_type, grade FROM science_grade WHERE student_id IN (:studentIds) "
+            + "UNION ALL SELECT student_id, 'history' AS grade_type, grade FROM history_grade WHERE student_id IN (:studentIds)"
+            + ") g GROUP BY student_id, grade_type", nativeQuery = true)
+    public void insertStatsByStudentIdIn(@Param("studentIds") Collection<Integer> studentIds);
+
+    // aggregates left behind by students that no longer exist
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM student_subject_stats WHERE student_id NOT IN (SELECT id FROM student)", nativeQuery = true)
+    public void deleteOrphanStats();
+}
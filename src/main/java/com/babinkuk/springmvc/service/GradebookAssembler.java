@@ -0,0 +1,74 @@
+package com.babinkuk.springmvc.service;
+
+import com.babinkuk.springmvc.models.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link Gradebook} from the full student and grade tables.
+ *
+ * Grades are grouped by student id in a single pass over each grade table, so assembly is
+ * linear in the number of students plus grades instead of rescanning every grade table per student.
+ * Every student gets its own immutable {@link StudentGrades}.
+ */
+public class GradebookAssembler {
+
+	private GradebookAssembler() {}
+
+	public static Gradebook assemble(Iterable<CollegeStudent> collegeStudents,
+									 Iterable<? extends Grade> mathGrades,
+									 Iterable<? extends Grade> scienceGrades,
+									 Iterable<? extends Grade> historyGrades,
+									 Iterable<StudentSubjectStats> subjectStats) {
+
+		Map<Integer, List<GradeSnapshot>> mathGradesByStudent = groupByStudentId(mathGrades);
+		Map<Integer, List<GradeSnapshot>> scienceGradesByStudent = groupByStudentId(scienceGrades);
+		Map<Integer, List<GradeSnapshot>> historyGradesByStudent = groupByStudentId(historyGrades);
+
+		Map<Integer, Map<String, StudentSubjectStats>> subjectStatsByStudent = new HashMap<>();
+		for (StudentSubjectStats stats : subjectStats) {
+			subjectStatsByStudent.computeIfAbsent(stats.getStudentId(), studentId -> new HashMap<>()).put(stats.getGradeType(), stats);
+		}
+
+		Gradebook gradebook = new Gradebook();
+
+		for (CollegeStudent collegeStudent : collegeStudents) {
+			StudentGrades studentGrades = new StudentGrades(gradesFor(mathGradesByStudent, collegeStudent.getId()),
+					gradesFor(scienceGradesByStudent, collegeStudent.getId()),
+					gradesFor(historyGradesByStudent, collegeStudent.getId()));
+
+			GradebookCollegeStudent gradebookCollegeStudent = new GradebookCollegeStudent(collegeStudent.getId(), collegeStudent.getFirstname(), collegeStudent.getLastname(),
+					collegeStudent.getEmailAddress(), studentGrades);
+
+			Map<String, StudentSubjectStats> studentSubjectStats = subjectStatsByStudent.get(collegeStudent.getId());
+			if (studentSubjectStats != null) {
+				gradebookCollegeStudent.setSubjectStats(studentSubjectStats);
+			}
+
+			gradebook.getStudents().add(gradebookCollegeStudent);
+		}
+
+		return gradebook;
+	}
+
+	static Map<Integer, List<GradeSnapshot>> groupByStudentId(Iterable<? extends Grade> grades) {
+		Map<Integer, List<GradeSnapshot>> gradesByStudent = new HashMap<>();
+
+		for (Grade grade : grades) {
+			gradesByStudent.computeIfAbsent(grade.getStudentId(), studentId -> new ArrayList<>()).add(GradeSnapshot.of(grade));
+		}
+
+		return gradesByStudent;
+	}
+
+	private static List<GradeSnapshot> gradesFor(Map<Integer, List<GradeSnapshot>> gradesByStudent, int studentId) {
+		List<GradeSnapshot> grades = gradesByStudent.get(studentId);
+		if (grades == null) {
+			return List.of();
+		}
+		return grades;
+	}
+}
@@ -0,0 +1,270 @@
+package com.babinkuk.springmvc.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a gradebook CSV file through memory-mapped windows.
+ *
+ * Rows are handed to the {@link RowHandler} as a reused {@link CsvRow} that points into the mapped
+ * window; fields are only turned into Strings when asked for and grades are parsed straight from the bytes.
+ * Quoting is not supported, fields must not contain commas.
+ */
+public class GradebookCsvParser {
+
+	public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private static final int MAX_FIELDS = 16;
+
+	public interface RowHandler {
+		void row(CsvRow row);
+	}
+
+	private final int windowSize;
+
+	public GradebookCsvParser() {
+		this(DEFAULT_WINDOW_SIZE);
+	}
+
+	public GradebookCsvParser(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Parses every row of the file, skipping a header row that starts with "firstname".
+	 * Returns the number of bytes read.
+	 */
+	public long parse(Path file, RowHandler handler) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			long size = channel.size();
+			long position = 0;
+			CsvRow row = new CsvRow();
+
+			while (position < size) {
+				long length = Math.min(windowSize, size - position);
+				boolean lastWindow = position + length == size;
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+				int rowStart = 0;
+				int limit = window.limit();
+
+				for (int i = 0; i < limit; i++) {
+					if (window.get(i) == '\n') {
+						row.reset(window, rowStart, i);
+						handleRow(row, handler);
+						rowStart = i + 1;
+					}
+				}
+
+				if (lastWindow) {
+					if (rowStart < limit) {
+						row.reset(window, rowStart, limit);
+						handleRow(row, handler);
+					}
+					position = size;
+				} else {
+					if (rowStart == 0) {
+						throw new IOException("Row at byte " + position + " is longer than the mapped window of " + windowSize + " bytes");
+					}
+					// continue with the row that is cut by the end of this window
+					position += rowStart;
+				}
+			}
+
+			return size;
+		}
+	}
+
+	private void handleRow(CsvRow row, RowHandler handler) {
+		row.split();
+		if (row.isBlank()) {
+			return;
+		}
+		if (row.getLineNumber() == 1 && row.startsWith(0, "firstname")) {
+			return;
+		}
+		handler.row(row);
+	}
+
+	/**
+	 * One CSV row, valid only for the duration of the {@link RowHandler#row} call.
+	 */
+	public static class CsvRow {
+
+		private MappedByteBuffer buffer;
+
+		private int start;
+
+		private int end;
+
+		private long lineNumber;
+
+		private int fieldCount;
+
+		private final int[] fieldStarts = new int[MAX_FIELDS];
+
+		private final int[] fieldEnds = new int[MAX_FIELDS];
+
+		private byte[] scratch = new byte[256];
+
+		void reset(MappedByteBuffer buffer, int start, int end) {
+			this.buffer = buffer;
+			this.start = start;
+			// tolerate windows line endings
+			this.end = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+			this.lineNumber++;
+		}
+
+		void split() {
+			fieldCount = 0;
+			int fieldStart = start;
+			for (int i = start; i < end && fieldCount < MAX_FIELDS - 1; i++) {
+				if (buffer.get(i) == ',') {
+					fieldStarts[fieldCount] = fieldStart;
+					fieldEnds[fieldCount] = i;
+					fieldCount++;
+					fieldStart = i + 1;
+				}
+			}
+			fieldStarts[fieldCount] = fieldStart;
+			fieldEnds[fieldCount] = end;
+			fieldCount++;
+		}
+
+		boolean isBlank() {
+			return fieldCount == 1 && fieldEnds[0] == fieldStarts[0];
+		}
+
+		boolean startsWith(int field, String prefix) {
+			if (fieldEnds[field] - fieldStarts[field] < prefix.length()) {
+				return false;
+			}
+			for (int i = 0; i < prefix.length(); i++) {
+				if (buffer.get(fieldStarts[field] + i) != prefix.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public long getLineNumber() {
+			return lineNumber;
+		}
+
+		public int getFieldCount() {
+			return fieldCount;
+		}
+
+		public String getString(int field) {
+			int from = fieldStarts[field];
+			int to = fieldEnds[field];
+			while (from < to && buffer.get(from) == ' ') {
+				from++;
+			}
+			while (to > from && buffer.get(to - 1) == ' ') {
+				to--;
+			}
+			int length = to - from;
+			if (scratch.length < length) {
+				scratch = new byte[length];
+			}
+			for (int i = 0; i < length; i++) {
+				scratch[i] = buffer.get(from + i);
+			}
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Parses the space separated grades of a field into {@code target}.
+		 * Returns false when a value is not a plain decimal number between 0 and 100.
+		 */
+		public boolean parseGrades(int field, GradeBuffer target) {
+			target.clear();
+			int i = fieldStarts[field];
+			int to = fieldEnds[field];
+
+			while (i < to) {
+				byte b = buffer.get(i);
+				if (b == ' ') {
+					i++;
+					continue;
+				}
+
+				long mantissa = 0;
+				int digits = 0;
+				int scale = 0;
+				boolean fraction = false;
+
+				while (i < to && (b = buffer.get(i)) != ' ') {
+					if (b >= '0' && b <= '9') {
+						if (digits == 15) {
+							return false;
+						}
+						mantissa = mantissa * 10 + (b - '0');
+						digits++;
+						if (fraction) {
+							scale++;
+						}
+					} else if (b == '.' && !fraction) {
+						fraction = true;
+					} else {
+						return false;
+					}
+					i++;
+				}
+
+				if (digits == 0) {
+					return false;
+				}
+
+				// exact for up to 15 significant digits
+				double grade = mantissa / POWERS_OF_TEN[scale];
+				if (grade > 100) {
+					return false;
+				}
+				target.add(grade);
+			}
+			return true;
+		}
+	}
+
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+	};
+
+	/**
+	 * Growable primitive buffer reused across rows.
+	 */
+	public static class GradeBuffer {
+
+		private double[] grades = new double[16];
+
+		private int size;
+
+		void clear() {
+			size = 0;
+		}
+
+		void add(double grade) {
+			if (size == grades.length) {
+				grades = Arrays.copyOf(grades, size * 2);
+			}
+			grades[size++] = grade;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public double get(int index) {
+			return grades[index];
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.babinkuk.springmvc.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams every student and grade as flat rows straight from a JDBC cursor to an output stream.
+ *
+ * Nothing goes through the persistence context, so memory stays bounded by the fetch size.
+ * On MySQL the datasource url needs {@code useCursorFetch=true} for the fetch size to be honoured.
+ */
+@Service
+@Transactional(readOnly = true)
+public class GradebookExportService {
+
+	public static final int FETCH_SIZE = 1000;
+
+	public static final String[] COLUMNS = {"studentId", "firstname", "lastname", "emailAddress", "gradeType", "gradeId", "grade"};
+
+	private static final String EXPORT_SQL = "SELECT s.id, s.firstname, s.lastname, s.email_address, g.grade_type, g.id, g.grade "
+			+ "FROM student s LEFT JOIN ("
+			+ "SELECT 'math' AS grade_type, id, student_id, grade FROM math_grade "
+			+ "UNION ALL SELECT 'science' AS grade_type, id, student_id, grade FROM science_grade "
+			+ "UNION ALL SELECT 'history' AS grade_type, id, student_id, grade FROM history_grade"
+			+ ") g ON g.student_id = s.id ORDER BY s.id";
+
+	private final JdbcTemplate jdbc;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	@Autowired
+	public GradebookExportService(DataSource dataSource) {
+		this.jdbc = new JdbcTemplate(dataSource);
+		this.jdbc.setFetchSize(FETCH_SIZE);
+	}
+
+	public void exportCsv(OutputStream outputStream) throws IOException {
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+		writer.write(String.join(",", COLUMNS));
+		writer.write('\n');
+
+		streamRows(rs -> {
+			writer.write(Integer.toString(rs.getInt(1)));
+			writer.write(',');
+			writeCsvField(writer, rs.getString(2));
+			writer.write(',');
+			writeCsvField(writer, rs.getString(3));
+			writer.write(',');
+			writeCsvField(writer, rs.getString(4));
+			writer.write(',');
+			if (rs.getString(5) != null) {
+				writer.write(rs.getString(5));
+				writer.write(',');
+				writer.write(Integer.toString(rs.getInt(6)));
+				writer.write(',');
+				writer.write(Double.toString(rs.getDouble(7)));
+			} else {
+				writer.write(",,");
+			}
+			writer.write('\n');
+		});
+
+		writer.flush();
+	}
+
+	public void exportNdjson(OutputStream outputStream) throws IOException {
+
+		JsonGenerator generator = jsonFactory.createGenerator(outputStream);
+		generator.setRootValueSeparator(null);
+
+		streamRows(rs -> {
+			generator.writeStartObject();
+			generator.writeNumberField(COLUMNS[0], rs.getInt(1));
+			generator.writeStringField(COLUMNS[1], rs.getString(2));
+			generator.writeStringField(COLUMNS[2], rs.getString(3));
+			generator.writeStringField(COLUMNS[3], rs.getString(4));
+			if (rs.getString(5) != null) {
+				generator.writeStringField(COLUMNS[4], rs.getString(5));
+				generator.writeNumberField(COLUMNS[5], rs.getInt(6));
+				generator.writeNumberField(COLUMNS[6], rs.getDouble(7));
+			}
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		});
+
+		generator.flush();
+	}
+
+	private interface RowWriter {
+		void write(ResultSet rs) throws SQLException, IOException;
+	}
+
+	private void streamRows(RowWriter rowWriter) throws IOException {
+		try {
+			jdbc.query(EXPORT_SQL, rs -> {
+				try {
+					rowWriter.write(rs);
+				} catch (IOException exc) {
+					throw new UncheckedIOException(exc);
+				}
+			});
+		} catch (UncheckedIOException exc) {
+			throw exc.getCause();
+		}
+	}
+
+	private void writeCsvField(Writer writer, String value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+}
@@ -0,0 +1,92 @@
+package com.babinkuk.springmvc.service;
+
+import com.babinkuk.springmvc.models.GradebookImportJob;
+import com.babinkuk.springmvc.models.GradebookImportResult;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs uploaded CSV imports off the request thread, one after another by default, and keeps the
+ * most recent jobs for progress polling. Jobs live in memory only: they are lost on restart and
+ * only the node that accepted an upload knows its job.
+ */
+@Service
+public class GradebookImportJobs {
+
+	@Autowired
+	private GradebookImportService importService;
+
+	private final ExecutorService executor;
+
+	private final Map<String, GradebookImportJob> jobs;
+
+	public GradebookImportJobs(@Value("${gradebook.import.threads:1}") int threads,
+							   @Value("${gradebook.import.retained-jobs:100}") int retainedJobs) {
+
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "gradebook-import-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// the oldest job is dropped once it has finished and more than retainedJobs are kept
+		this.jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, GradebookImportJob> eldest) {
+				return size() > retainedJobs && eldest.getValue().getStatus() != GradebookImportJob.Status.RUNNING;
+			}
+		});
+	}
+
+	// takes over the file and deletes it once the import is done
+	public GradebookImportJob submit(Path csvFile) {
+		GradebookImportJob job = new GradebookImportJob(UUID.randomUUID().toString());
+		jobs.put(job.getId(), job);
+		executor.execute(() -> run(job, csvFile));
+		return job;
+	}
+
+	// null when the job is unknown or no longer retained
+	public GradebookImportJob get(String id) {
+		return jobs.get(id);
+	}
+
+	private void run(GradebookImportJob job, Path csvFile) {
+		try {
+			// progress hands out the import's live counters, the job keeps a copy
+			job.setResult(importService.importCsv(csvFile, progress -> job.setResult(new GradebookImportResult(progress))));
+			job.setStatus(GradebookImportJob.Status.DONE);
+		} catch (IOException | RuntimeException exc) {
+			job.setError(exc.toString());
+			job.setStatus(GradebookImportJob.Status.FAILED);
+		} finally {
+			try {
+				Files.deleteIfExists(csvFile);
+			} catch (IOException exc) {
+				throw new UncheckedIOException(exc);
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
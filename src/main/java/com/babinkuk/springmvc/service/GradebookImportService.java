@@ -0,0 +1,199 @@
+package com.babinkuk.springmvc.service;
+
+import com.babinkuk.springmvc.models.*;
+import com.babinkuk.springmvc.repository.StudentDao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Imports students and their grades from a CSV file with the columns
+ * {@code firstname,lastname,emailAddress,mathGrades,scienceGrades,historyGrades},
+ * where each grade column holds space separated grades.
+ *
+ * Rows are written in transactions of {@link #CHUNK_SIZE} rows; a failure rolls back the current chunk only.
+ * Rows with an email address that is already registered are rejected.
+ * Imported students and grades are counted once their chunk has committed, so progress and the result of a failed
+ * import only report what is in the database.
+ */
+@Service
+public class GradebookImportService {
+
+	public static final int CHUNK_SIZE = 1000;
+
+	private static final String[] GRADE_TYPES = {"math", "science", "history"};
+
+	private static final int FIELD_COUNT = 3 + GRADE_TYPES.length;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private StudentRankingIndex rankingIndex;
+
+	@Autowired
+	private RegisteredEmails registeredEmails;
+
+	@Autowired
+	private StudentDao studentDao;
+
+	public GradebookImportResult importCsv(Path file, Consumer<GradebookImportResult> progress) throws IOException {
+
+		ChunkWriter writer = new ChunkWriter(progress);
+
+		try {
+			new GradebookCsvParser().parse(file, writer::row);
+			writer.commit();
+		} catch (RuntimeException | IOException exc) {
+			writer.rollback();
+			throw exc;
+		} finally {
+			// chunks committed before a failure stay, so the index is rebuilt either way
+			rankingIndex.rebuild();
+		}
+
+		return writer.result;
+	}
+
+	private class ChunkWriter {
+
+		private final GradebookImportResult result = new GradebookImportResult();
+
+		private final Consumer<GradebookImportResult> progress;
+
+		private final long start = System.currentTimeMillis();
+
+		private final GradebookCsvParser.GradeBuffer[] grades = new GradebookCsvParser.GradeBuffer[GRADE_TYPES.length];
+
+		private TransactionStatus transaction;
+
+		private int rowsInChunk;
+
+		private long studentsInChunk;
+
+		private long gradesInChunk;
+
+		ChunkWriter(Consumer<GradebookImportResult> progress) {
+			this.progress = progress;
+			for (int i = 0; i < grades.length; i++) {
+				grades[i] = new GradebookCsvParser.GradeBuffer();
+			}
+		}
+
+		void row(GradebookCsvParser.CsvRow row) {
+			result.setRows(result.getRows() + 1);
+
+			if (!parseGrades(row)) {
+				result.setRejected(result.getRejected() + 1);
+				return;
+			}
+
+			if (transaction == null) {
+				transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+			}
+
+			String normalizedEmail = StudentAndGradeService.normalizeEmail(row.getString(2));
+
+			// most rows of an enrolment file are new students, the filter spares them the query;
+			// the query flushes this chunk first, so repeats within the file are caught too
+			if (registeredEmails.mightBeRegistered(normalizedEmail) && studentDao.findByEmailAddress(normalizedEmail) != null) {
+				result.setRejected(result.getRejected() + 1);
+				return;
+			}
+			registeredEmails.registered(normalizedEmail);
+
+			CollegeStudent student = new CollegeStudent(row.getString(0), row.getString(1), normalizedEmail);
+			entityManager.persist(student);
+			studentsInChunk++;
+
+			for (int type = 0; type < GRADE_TYPES.length; type++) {
+				if (grades[type].size() == 0) {
+					continue;
+				}
+
+				StudentSubjectStats stats = new StudentSubjectStats(student.getId(), GRADE_TYPES[type]);
+
+				for (int i = 0; i < grades[type].size(); i++) {
+					Grade grade = newGrade(GRADE_TYPES[type]);
+					grade.setStudentId(student.getId());
+					grade.setGrade(grades[type].get(i));
+					entityManager.persist(grade);
+					stats.addGrade(grades[type].get(i));
+				}
+
+				entityManager.persist(stats);
+				gradesInChunk += grades[type].size();
+			}
+
+			if (++rowsInChunk == CHUNK_SIZE) {
+				commit();
+			}
+		}
+
+		private boolean parseGrades(GradebookCsvParser.CsvRow row) {
+			if (row.getFieldCount() != FIELD_COUNT) {
+				return false;
+			}
+			for (int type = 0; type < GRADE_TYPES.length; type++) {
+				if (!row.parseGrades(3 + type, grades[type])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void commit() {
+			if (transaction != null) {
+				entityManager.flush();
+				entityManager.clear();
+				try {
+					transactionManager.commit(transaction);
+				} finally {
+					// a failed commit has rolled back and completed the transaction already, rollback() must leave it alone
+					transaction = null;
+				}
+				result.setStudents(result.getStudents() + studentsInChunk);
+				result.setGrades(result.getGrades() + gradesInChunk);
+			}
+			rowsInChunk = 0;
+			studentsInChunk = 0;
+			gradesInChunk = 0;
+			result.setElapsedMillis(System.currentTimeMillis() - start);
+			if (progress != null) {
+				progress.accept(result);
+			}
+		}
+
+		void rollback() {
+			if (transaction != null && !transaction.isCompleted()) {
+				transactionManager.rollback(transaction);
+			}
+			transaction = null;
+			studentsInChunk = 0;
+			gradesInChunk = 0;
+		}
+	}
+
+	private Grade newGrade(String gradeType) {
+		if (gradeType.equals("math")) {
+			return new MathGrade();
+		}
+		if (gradeType.equals("science")) {
+			return new ScienceGrade();
+		}
+		return new HistoryGrade();
+	}
+}
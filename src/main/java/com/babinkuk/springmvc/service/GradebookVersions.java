@@ -0,0 +1,41 @@
+package com.babinkuk.springmvc.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version counter behind the email lookup cache.
+ *
+ * The deletion version moves after every committed student deletion, so lookups read before a deletion are not
+ * served after it. It is per process: deletions on another node, or ones that bypass {@link StudentAndGradeService},
+ * are not seen. The ETags and the student information cache use the persisted student revision instead.
+ */
+@Component
+public class GradebookVersions {
+
+	private final AtomicLong deletionVersion = new AtomicLong();
+
+	public long getDeletionVersion() {
+		return deletionVersion.get();
+	}
+
+	public void studentsDeleted() {
+		afterCommit(deletionVersion::incrementAndGet);
+	}
+
+	private void afterCommit(Runnable bump) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			bump.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				bump.run();
+			}
+		});
+	}
+}
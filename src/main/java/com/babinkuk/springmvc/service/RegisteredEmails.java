@@ -0,0 +1,76 @@
+package com.babinkuk.springmvc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Bloom filter over the normalized email addresses of all registered students, to skip the duplicate check
+ * against the database for addresses that are certainly new.
+ *
+ * Loaded from the student table once the application is ready; until then every address counts as possibly registered.
+ * Deleted students stay in the filter, which only costs a database probe when their address registers again.
+ * The unique index on email_address stays the authority, the filter never lets a duplicate through on its own.
+ */
+@Component
+public class RegisteredEmails {
+
+	private final ScalableBloomFilter filter;
+
+	private final JdbcTemplate jdbc;
+
+	private final Counter skippedProbes;
+
+	private final Counter probes;
+
+	private volatile boolean loaded;
+
+	@Autowired
+	public RegisteredEmails(DataSource dataSource, MeterRegistry registry,
+							@Value("${gradebook.registration.bloom.expected-emails:100000}") long expectedEmails,
+							@Value("${gradebook.registration.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+							@Value("${gradebook.registration.bloom.max-megabytes:64}") long maxMegabytes) {
+		this.filter = new ScalableBloomFilter(expectedEmails, falsePositiveRate, maxMegabytes * 1024 * 1024);
+		this.jdbc = new JdbcTemplate(dataSource);
+		this.jdbc.setFetchSize(GradebookExportService.FETCH_SIZE);
+
+		this.skippedProbes = Counter.builder("gradebook.registration.email.checks").tag("result", "new")
+				.description("Registrations the Bloom filter cleared without a database probe").register(registry);
+		this.probes = Counter.builder("gradebook.registration.email.checks").tag("result", "probed")
+				.description("Registrations checked against the database").register(registry);
+		Gauge.builder("gradebook.registration.bloom.bytes", filter, ScalableBloomFilter::getBytes).register(registry);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		jdbc.query("SELECT email_address FROM student WHERE email_address IS NOT NULL", rs -> {
+			filter.add(StudentAndGradeService.normalizeEmail(rs.getString(1)));
+		});
+		loaded = true;
+	}
+
+	// false means the address is certainly not registered, true that the database has to be asked
+	public boolean mightBeRegistered(String normalizedEmail) {
+		boolean mightBeRegistered = !loaded || filter.mightContain(normalizedEmail);
+		(mightBeRegistered ? probes : skippedProbes).increment();
+		return mightBeRegistered;
+	}
+
+	// call before the insert commits, a rolled back insert only leaves a false positive behind
+	public void registered(String normalizedEmail) {
+		filter.add(normalizedEmail);
+	}
+
+	public ScalableBloomFilter getFilter() {
+		return filter;
+	}
+}
@@ -0,0 +1,154 @@
+package com.babinkuk.springmvc.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scalable Bloom filter over strings (Almeida et al.): a chain of plain Bloom filters, each twice the capacity of the one
+ * before with half its false-positive rate, so the overall rate stays below the configured one however many strings are added.
+ *
+ * Lookups are lock-free, adds synchronize. Once the next stage would take the filter over {@code maxBytes} it stops
+ * growing; the last stage then keeps filling up and its false-positive rate rises instead of the memory.
+ */
+public class ScalableBloomFilter {
+
+	// each stage gets half the false-positive rate of the one before, the series sums to twice the first stage's rate
+	private static final double TIGHTENING_RATIO = 0.5;
+
+	private static final double LN2 = Math.log(2);
+
+	private final double falsePositiveRate;
+
+	private final long maxBytes;
+
+	private volatile Stage[] stages;
+
+	public ScalableBloomFilter(long expectedInsertions, double falsePositiveRate, long maxBytes) {
+		if (expectedInsertions < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("expected insertions must be positive and the false-positive rate between 0 and 1");
+		}
+		this.falsePositiveRate = falsePositiveRate;
+		this.maxBytes = maxBytes;
+		this.stages = new Stage[] {new Stage(expectedInsertions, falsePositiveRate * (1 - TIGHTENING_RATIO))};
+	}
+
+	public boolean mightContain(String value) {
+		long hash = hash(value);
+		for (Stage stage : stages) {
+			if (stage.mightContain(hash)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public synchronized void add(String value) {
+		long hash = hash(value);
+		Stage[] current = stages;
+		Stage last = current[current.length - 1];
+
+		if (last.count >= last.capacity) {
+			Stage next = new Stage(last.capacity * 2, last.falsePositiveRate * TIGHTENING_RATIO);
+			if (getBytes() + next.bytes() <= maxBytes) {
+				Stage[] grown = Arrays.copyOf(current, current.length + 1);
+				grown[current.length] = next;
+				stages = grown;
+				last = next;
+			}
+		}
+
+		last.add(hash);
+	}
+
+	public long getBytes() {
+		long bytes = 0;
+		for (Stage stage : stages) {
+			bytes += stage.bytes();
+		}
+		return bytes;
+	}
+
+	public int getStageCount() {
+		return stages.length;
+	}
+
+	// upper bound for the filled stages, exact for the configured capacities
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	// FNV-1a over the chars, then finalized with the murmur3 mix so low bits are usable
+	static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static class Stage {
+
+		private final long capacity;
+
+		private final double falsePositiveRate;
+
+		private final long bitCount;
+
+		private final int hashCount;
+
+		private final AtomicLongArray bits;
+
+		// only written under the filter's lock
+		private long count;
+
+		Stage(long capacity, double falsePositiveRate) {
+			this.capacity = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			// optimal size and number of hashes for the capacity and rate
+			long words = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2) / 64);
+			if (words > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Bloom filter stage of " + capacity + " entries is too large");
+			}
+			this.bits = new AtomicLongArray((int) Math.max(1, words));
+			this.bitCount = bits.length() * 64L;
+			this.hashCount = (int) Math.max(1, Math.round((double) bitCount / capacity * LN2));
+		}
+
+		long bytes() {
+			return bitCount / 8;
+		}
+
+		void add(long hash) {
+			long h1 = hash;
+			long h2 = mix(hash + 0x9e3779b97f4a7c15L) | 1;
+			for (int i = 0; i < hashCount; i++) {
+				long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+				long mask = 1L << bit;
+				bits.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+			}
+			count++;
+		}
+
+		boolean mightContain(long hash) {
+			long h1 = hash;
+			long h2 = mix(hash + 0x9e3779b97f4a7c15L) | 1;
+			for (int i = 0; i < hashCount; i++) {
+				long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+				if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -1,26 +1,73 @@
 package com.babinkuk.springmvc.service;
 
+import com.babinkuk.springmvc.MvcTestingExampleApplication;
+import com.babinkuk.springmvc.exceptionhandling.GradeBatchTooLargeException;
+import com.babinkuk.springmvc.exceptionhandling.StudentAlreadyExistsException;
 import com.babinkuk.springmvc.models.*;
 import com.babinkuk.springmvc.repository.HistoryGradesDao;
 import com.babinkuk.springmvc.repository.MathGradesDao;
 import com.babinkuk.springmvc.repository.ScienceGradesDao;
 import com.babinkuk.springmvc.repository.StudentDao;
+import com.babinkuk.springmvc.repository.StudentSubjectStatsDao;
+import com.babinkuk.springmvc.util.GradeRounding;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.ui.Model;
+import org.springframework.util.DigestUtils;
 
+import org.hibernate.exception.ConstraintViolationException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceContext;
+
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
 public class StudentAndGradeService {
 
+	public static final int MAX_PAGE_SIZE = 1000;
+
+	public static final int STREAM_PAGE_SIZE = 500;
+
+	// keep in step with spring.jpa.properties.hibernate.jdbc.batch_size
+	public static final int BATCH_SIZE = 50;
+
+	public static final int REBUILD_PAGE_SIZE = 500;
+
+	// relative difference up to which a rebuilt grade sum counts as unchanged
+	private static final double SUM_TOLERANCE = 1e-9;
+
+	// ids per IN list of a bulk delete
+	public static final int DELETE_CHUNK_SIZE = 1000;
+
+	private static final String[] GRADE_TYPES = {"math", "science", "history"};
+
 	@Autowired
 	private StudentDao studentDao;
 
@@ -34,77 +81,236 @@ public class StudentAndGradeService {
 	private HistoryGradesDao historyGradeDao;
 
 	@Autowired
-	@Qualifier("mathGrades")
-	private MathGrade mathGrade;
+	private StudentSubjectStatsDao subjectStatsDao;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private GradebookVersions versions;
 
 	@Autowired
-	@Qualifier("scienceGrades")
-	private ScienceGrade scienceGrade;
+	private StudentInformationLoader studentInformationLoader;
 
 	@Autowired
-	@Qualifier("historyGrades")
-	private HistoryGrade historyGrade;
+	private StudentRankingIndex rankingIndex;
 
 	@Autowired
-	StudentGrades studentGrades;
+	private RegisteredEmails registeredEmails;
+
+	// createGrades holds the row locks of every student in the batch until commit, this bounds that transaction
+	@Value("${gradebook.batch.max-grades:10000}")
+	private int maxBatchGrades;
+
+	public CollegeStudent createStudent(String firstname, String lastname, String emailAddress){
+
+		// stored normalized, so lookups by the normalized address match on any column collation
+		String normalizedEmail = emailAddress == null ? null : normalizeEmail(emailAddress);
 
-	public void createStudent(String firstname, String lastname, String emailAddress){
+		if (normalizedEmail != null) {
+			// the filter clears certainly new addresses without a query, the unique index still backs up a race between two
+			if (registeredEmails.mightBeRegistered(normalizedEmail) && studentDao.findByEmailAddress(normalizedEmail) != null) {
+				throw new StudentAlreadyExistsException("Student with this email address already exists");
+			}
+			registeredEmails.registered(normalizedEmail);
+		}
 
-		CollegeStudent student = new CollegeStudent(firstname, lastname, emailAddress);
+		CollegeStudent student = new CollegeStudent(firstname, lastname, normalizedEmail);
 
 		student.setId(0);
 
-		studentDao.save(student);
+		try {
+			// flushed here, so a duplicate that raced past the check above fails in this method and not at commit
+			entityManager.persist(student);
+			entityManager.flush();
+		} catch (PersistenceException exc) {
+			if (isEmailAddressConflict(exc)) {
+				throw new StudentAlreadyExistsException("Student with this email address already exists", exc);
+			}
+			throw exc;
+		}
+
+		return student;
 	}
 
-	public void deleteStudent(int id){
-		if (checkIfStudentIsNull(id)) {
-			studentDao.deleteById(id);
-			mathGradeDao.deleteByStudentId(id);
-			scienceGradeDao.deleteByStudentId(id);
-			historyGradeDao.deleteByStudentId(id);
+	private static boolean isEmailAddressConflict(Throwable exc) {
+		for (Throwable cause = exc; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConstraintViolationException) {
+				String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+				// databases report the name in their own case, H2 also appends the index it created
+				return constraintName != null
+						&& constraintName.toLowerCase(Locale.ROOT).contains(CollegeStudent.EMAIL_ADDRESS_CONSTRAINT);
+			}
 		}
+		return false;
 	}
 
-	public boolean checkIfStudentIsNull(int id){
-		Optional<CollegeStudent> student = studentDao.findById(id);
-		if (student.isPresent()) {
-			return true;
+	// returns the deleted student, or null when there was none
+	public CollegeStudent deleteStudent(int id){
+		List<StudentEmailAddress> locked = studentDao.lockEmailAddressesByIdIn(List.of(id));
+		if (locked.isEmpty()) {
+			return null;
 		}
-		return false;
+		CollegeStudent student = studentDao.findById(id).get();
+		deleteStudentsWithGrades(locked);
+		return student;
 	}
 
-	public GradebookCollegeStudent studentInformation(int id) {
-		Optional<CollegeStudent> student = studentDao.findById(id);
+	// a chunk of DELETE_CHUNK_SIZE ids costs one locking select of ids and email addresses and five bulk deletes,
+	// however many grades the students have. Every chunk commits on its own, so a failure leaves the chunks before
+	// it deleted and the summary counts committed chunks only. Inside a caller's transaction the chunks join it
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public StudentDeleteSummary deleteStudents(Collection<Integer> ids) {
+
+		StudentDeleteSummary summary = new StudentDeleteSummary();
+		summary.setReceived(ids.size());
+
+		List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		for (int from = 0; from < distinctIds.size(); from += DELETE_CHUNK_SIZE) {
+			List<Integer> chunk = distinctIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, distinctIds.size()));
+
+			StudentDeleteSummary chunkSummary = transaction.execute(status -> {
+				List<StudentEmailAddress> students = studentDao.lockEmailAddressesByIdIn(chunk);
+
+				StudentDeleteSummary deleted = new StudentDeleteSummary();
+				deleted.setDeleted(students.size());
+				deleted.setGradesDeleted(deleteStudentsWithGrades(students));
+
+				Set<Integer> foundIds = new HashSet<>();
+				for (StudentEmailAddress student : students) {
+					foundIds.add(student.getId());
+				}
+				for (Integer id : chunk) {
+					if (!foundIds.contains(id)) {
+						deleted.getNotFound().add(id);
+					}
+				}
+				return deleted;
+			});
+
+			summary.setDeleted(summary.getDeleted() + chunkSummary.getDeleted());
+			summary.setGradesDeleted(summary.getGradesDeleted() + chunkSummary.getGradesDeleted());
+			summary.getNotFound().addAll(chunkSummary.getNotFound());
+		}
+
+		return summary;
+	}
+
+	// returns the number of grades deleted, the students are locked by the caller
+	private int deleteStudentsWithGrades(List<StudentEmailAddress> students) {
+		if (students.isEmpty()) {
+			return 0;
+		}
+
+		List<Integer> ids = new ArrayList<>(students.size());
+		for (StudentEmailAddress student : students) {
+			ids.add(student.getId());
+		}
+
+		int gradesDeleted = mathGradeDao.deleteByStudentIdIn(ids)
+				+ scienceGradeDao.deleteByStudentIdIn(ids)
+				+ historyGradeDao.deleteByStudentIdIn(ids);
+		subjectStatsDao.deleteByStudentIdIn(ids);
+		studentDao.deleteByIdIn(ids);
+
+		Cache studentInformationCache = cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE);
+		Cache studentIdByEmailCache = cacheManager.getCache(MvcTestingExampleApplication.STUDENT_ID_BY_EMAIL_CACHE);
+		for (StudentEmailAddress student : students) {
+			studentInformationCache.evict(student.getId());
+			if (student.getEmailAddress() != null) {
+				studentIdByEmailCache.evict(normalizeEmail(student.getEmailAddress()));
+			}
+		}
+
+		versions.studentsDeleted();
+		rankingIndex.studentsRemoved(ids);
+		return gradesDeleted;
+	}
+
+	// login path: hits are answered from memory, misses are one lookup on the unique email index and are not cached.
+	// Addresses are stored normalized, so the lookup does not depend on the collation of email_address.
+	// Entries carry the deletion version read before the lookup and are only served while it is current,
+	// a lookup that raced with a delete can never hand out the deleted student's id
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public Integer findStudentIdByEmail(String emailAddress) {
+
+		String normalizedEmail = normalizeEmail(emailAddress);
+		Cache cache = cacheManager.getCache(MvcTestingExampleApplication.STUDENT_ID_BY_EMAIL_CACHE);
+		long deletionVersion = versions.getDeletionVersion();
+
+		CachedStudentId cached = cache.get(normalizedEmail, CachedStudentId.class);
+		if (cached != null && cached.deletionVersion == deletionVersion) {
+			return cached.studentId;
+		}
 
-		if (!student.isPresent()) {
+		CollegeStudent student = studentDao.findByEmailAddress(normalizedEmail);
+		if (student == null) {
 			return null;
 		}
+		cache.put(normalizedEmail, new CachedStudentId(student.getId(), deletionVersion));
+		return student.getId();
+	}
 
-		Iterable<MathGrade> mathGrades = mathGradeDao.findGradeByStudentId(id);
+	private static final class CachedStudentId {
 
-		Iterable<ScienceGrade> scienceGrades = scienceGradeDao.findGradeByStudentId(id);
+		private final int studentId;
 
-		Iterable<HistoryGrade> historyGrades = historyGradeDao.findGradeByStudentId(id);
+		private final long deletionVersion;
 
-		List<Grade> mathGradesList = new ArrayList<>();
-		mathGrades.forEach(mathGradesList::add);
+		CachedStudentId(int studentId, long deletionVersion) {
+			this.studentId = studentId;
+			this.deletionVersion = deletionVersion;
+		}
+	}
 
-		List<Grade> scienceGradesList = new ArrayList<>();
-		scienceGrades.forEach(scienceGradesList::add);
+	public static String normalizeEmail(String emailAddress) {
+		return emailAddress.trim().toLowerCase(Locale.ROOT);
+	}
 
-		List<Grade> historyGradesList = new ArrayList<>();
-		historyGrades.forEach(historyGradesList::add);
+	public boolean checkIfStudentIsNull(int id){
+		Optional<CollegeStudent> student = studentDao.findById(id);
+		if (student.isPresent()) {
+			return true;
+		}
+		return false;
+	}
 
+	// read-through. Entries carry the student revision read before the load and are only served while it is
+	// current: a load that raced with a write may still put its result after the write's eviction, and a write
+	// on another node never evicts here, but neither entry is returned. Writes also evict after commit, which just frees the memory early.
+	// SUPPORTS keeps the calling thread from holding a connection while a parallel load waits for its workers
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public GradebookCollegeStudent studentInformation(int id) {
 
-		studentGrades.setMathGradeResults(mathGradesList);
-		studentGrades.setScienceGradeResults(scienceGradesList);
-		studentGrades.setHistoryGradeResults(historyGradesList);
+		Long revision = studentDao.findRevisionById(id);
+		return revision == null ? null : studentInformation(id, revision);
+	}
+
+	// for callers that read the revision already, e.g. to answer a conditional GET first
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public GradebookCollegeStudent studentInformation(int id, long revision) {
 
-		GradebookCollegeStudent gradebookCollegeStudent = new GradebookCollegeStudent(student.get().getId(), student.get().getFirstname(), student.get().getLastname(),
-				student.get().getEmailAddress(), studentGrades);
+		Cache cache = cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE);
 
-		return gradebookCollegeStudent;
+		StudentInformationSnapshot cached = cache.get(id, StudentInformationSnapshot.class);
+		if (cached != null && cached.getRevision() == revision) {
+			return cached.toGradebookCollegeStudent();
+		}
+
+		GradebookCollegeStudent student = studentInformationLoader.load(id);
+		if (student != null) {
+			// the cache is transaction aware, the put runs after commit
+			cache.put(id, StudentInformationSnapshot.of(revision, student));
+		}
+		return student;
 	}
 
 	public boolean checkIfGradeIsNull(int id, String gradeType){
@@ -130,9 +336,11 @@ public class StudentAndGradeService {
 		return false;
 	}
 
+	@CacheEvict(cacheNames = MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE, key = "#result")
 	public int deleteGrade(int id, String gradeType) {
 
 		int studentId = 0;
+		StudentSubjectStats subjectStats = null;
 
 		if (gradeType.equals("math")) {
 			Optional<MathGrade> grade = mathGradeDao.findById(id);
@@ -140,7 +348,9 @@ public class StudentAndGradeService {
 				return studentId;
 			}
 			studentId = grade.get().getStudentId();
+			studentDao.lockById(studentId);
 			mathGradeDao.deleteById(id);
+			subjectStats = removeFromSubjectStats(studentId, gradeType, grade.get().getGrade());
 		}
 
 		if (gradeType.equals("science")) {
@@ -149,7 +359,9 @@ public class StudentAndGradeService {
 				return studentId;
 			}
 			studentId = grade.get().getStudentId();
+			studentDao.lockById(studentId);
 			scienceGradeDao.deleteById(id);
+			subjectStats = removeFromSubjectStats(studentId, gradeType, grade.get().getGrade());
 		}
 
 		if (gradeType.equals("history")) {
@@ -158,41 +370,365 @@ public class StudentAndGradeService {
 				return studentId;
 			}
 			studentId = grade.get().getStudentId();
+			studentDao.lockById(studentId);
 			historyGradeDao.deleteById(id);
+			subjectStats = removeFromSubjectStats(studentId, gradeType, grade.get().getGrade());
+		}
+
+		if (studentId != 0) {
+			studentDao.incrementRevisionByIdIn(List.of(studentId));
+			rankingIndex.subjectChanged(studentId, gradeType, subjectStats);
 		}
 
 		return studentId;
 	}
 
+	@CacheEvict(cacheNames = MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE, key = "#studentId")
 	public boolean createGrade(double grade, int studentId, String gradeType) {
-		if (grade >= 0 && grade <= 100) {
-			if (gradeType.equals("math")) {
-				mathGrade.setId(0);
-				mathGrade.setGrade(grade);
-				mathGrade.setStudentId(studentId);
-				mathGradeDao.save(mathGrade);
-				return true;
+		if (grade < 0 || grade > 100 || !isGradeType(gradeType)) {
+			return false;
+		}
+
+		// grades of a student that does not exist are still written, there is just no row to lock
+		studentDao.lockById(studentId);
+
+		// a new entity per call, concurrent requests never share grade instances
+		Grade newGrade = newGrade(gradeType);
+		newGrade.setStudentId(studentId);
+		newGrade.setGrade(grade);
+		entityManager.persist(newGrade);
+
+		StudentSubjectStats subjectStats = addToSubjectStats(studentId, gradeType, List.of(grade));
+		studentDao.incrementRevisionByIdIn(List.of(studentId));
+		rankingIndex.subjectChanged(studentId, gradeType, subjectStats);
+		return true;
+	}
+
+	public GradeBatchSummary createGrades(List<GradeBatchItem> grades) {
+
+		if (grades.size() > maxBatchGrades) {
+			throw new GradeBatchTooLargeException("Batch of " + grades.size() + " grades exceeds the limit of " + maxBatchGrades);
+		}
+
+		GradeBatchSummary summary = new GradeBatchSummary();
+		summary.setReceived(grades.size());
+
+		Set<Integer> requestedStudentIds = new HashSet<>();
+		for (GradeBatchItem item : grades) {
+			requestedStudentIds.add(item.getStudentId());
+		}
+
+		// validates and locks every student of the batch with a single IN query
+		Set<Integer> existingStudentIds = requestedStudentIds.isEmpty() ? new HashSet<>()
+				: new HashSet<>(studentDao.lockByIdIn(requestedStudentIds));
+
+		Map<String, List<GradeBatchItem>> gradesByType = new LinkedHashMap<>();
+		for (String gradeType : GRADE_TYPES) {
+			gradesByType.put(gradeType, new ArrayList<>());
+		}
+
+		for (int i = 0; i < grades.size(); i++) {
+			GradeBatchItem item = grades.get(i);
+			List<GradeBatchItem> gradesOfType = item.getGradeType() == null ? null : gradesByType.get(item.getGradeType());
+
+			if (gradesOfType == null || item.getGrade() < 0 || item.getGrade() > 100 || !existingStudentIds.contains(item.getStudentId())) {
+				summary.getRejected().add(i);
+				continue;
 			}
+			gradesOfType.add(item);
+		}
 
-			if (gradeType.equals("science")) {
-				scienceGrade.setId(0);
-				scienceGrade.setGrade(grade);
-				scienceGrade.setStudentId(studentId);
-				scienceGradeDao.save(scienceGrade);
-				return true;
+		// student id -> grade type -> new grades, for the aggregate update after all inserts
+		Map<Integer, Map<String, List<Double>>> newGrades = new HashMap<>();
+
+		for (Map.Entry<String, List<GradeBatchItem>> entry : gradesByType.entrySet()) {
+			String gradeType = entry.getKey();
+			List<GradeBatchItem> gradesOfType = entry.getValue();
+
+			if (gradesOfType.isEmpty()) {
+				continue;
 			}
 
-			if (gradeType.equals("history")) {
-				historyGrade.setId(0);
-				historyGrade.setGrade(grade);
-				historyGrade.setStudentId(studentId);
-				historyGradeDao.save(historyGrade);
+			// pooled ids let hibernate send each subject table as JDBC batches of BATCH_SIZE inserts
+			for (int i = 0; i < gradesOfType.size(); i++) {
+				GradeBatchItem item = gradesOfType.get(i);
+				Grade grade = newGrade(gradeType);
+				grade.setStudentId(item.getStudentId());
+				grade.setGrade(item.getGrade());
+				entityManager.persist(grade);
+
+				if ((i + 1) % BATCH_SIZE == 0) {
+					entityManager.flush();
+					entityManager.clear();
+				}
+			}
+			entityManager.flush();
+			entityManager.clear();
+
+			for (GradeBatchItem item : gradesOfType) {
+				newGrades.computeIfAbsent(item.getStudentId(), studentId -> new HashMap<>())
+						.computeIfAbsent(gradeType, type -> new ArrayList<>()).add(item.getGrade());
+			}
+
+			summary.getCreatedByGradeType().put(gradeType, gradesOfType.size());
+			summary.setCreated(summary.getCreated() + gradesOfType.size());
+		}
+
+		if (!newGrades.isEmpty()) {
+			for (StudentSubjectStats stats : addToSubjectStats(newGrades)) {
+				rankingIndex.subjectChanged(stats.getStudentId(), stats.getGradeType(), stats);
+			}
+		}
+
+		if (!existingStudentIds.isEmpty()) {
+			studentDao.incrementRevisionByIdIn(existingStudentIds);
+		}
+
+		// the cache is transaction aware, evictions run after commit
+		Cache studentInformationCache = cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE);
+		for (Integer studentId : existingStudentIds) {
+			studentInformationCache.evict(studentId);
+		}
+
+		return summary;
+	}
+
+	private boolean isGradeType(String gradeType) {
+		for (String type : GRADE_TYPES) {
+			if (type.equals(gradeType)) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	private Grade newGrade(String gradeType) {
+		if (gradeType.equals("math")) {
+			return new MathGrade();
+		}
+		if (gradeType.equals("science")) {
+			return new ScienceGrade();
+		}
+		return new HistoryGrade();
+	}
+
+	// returns the aggregate after the update
+	private StudentSubjectStats addToSubjectStats(int studentId, String gradeType, List<Double> grades) {
+		Optional<StudentSubjectStats> stats = subjectStatsDao.findByStudentIdAndGradeType(studentId, gradeType);
+		if (stats.isPresent()) {
+			for (double grade : grades) {
+				stats.get().addGrade(grade);
+			}
+			return stats.get();
+		}
+		// no aggregate yet (first grade, or grades that predate the aggregate table)
+		return recomputeSubjectStats(studentId, gradeType);
+	}
+
+	// set-based counterpart for a batch, the students are locked by the caller. One select loads every aggregate of
+	// the batch and the in-memory updates flush as JDBC batches. A subject without an aggregate had no grades before
+	// the batch, so its aggregate starts from the inserted grades
+	private List<StudentSubjectStats> addToSubjectStats(Map<Integer, Map<String, List<Double>>> newGrades) {
+		Map<Integer, Map<String, StudentSubjectStats>> statsByStudent = subjectStatsByStudent(newGrades.keySet());
+
+		// the aggregates of the subjects the batch wrote, after the update
+		List<StudentSubjectStats> updated = new ArrayList<>();
+		for (Map.Entry<Integer, Map<String, List<Double>>> studentGrades : newGrades.entrySet()) {
+			int studentId = studentGrades.getKey();
+			Map<String, StudentSubjectStats> stats = statsByStudent.getOrDefault(studentId, Map.of());
+			for (Map.Entry<String, List<Double>> gradesOfType : studentGrades.getValue().entrySet()) {
+				StudentSubjectStats subjectStats = stats.get(gradesOfType.getKey());
+				if (subjectStats == null) {
+					subjectStats = new StudentSubjectStats(studentId, gradesOfType.getKey());
+					entityManager.persist(subjectStats);
+				}
+				for (double grade : gradesOfType.getValue()) {
+					subjectStats.addGrade(grade);
+				}
+				updated.add(subjectStats);
+			}
+		}
+
+		entityManager.flush();
+		return updated;
+	}
+
+	// student id -> grade type -> aggregate, students without any aggregate are left out
+	private Map<Integer, Map<String, StudentSubjectStats>> subjectStatsByStudent(Collection<Integer> studentIds) {
+		Map<Integer, Map<String, StudentSubjectStats>> statsByStudent = new HashMap<>();
+		for (StudentSubjectStats stats : subjectStatsDao.findByStudentIdIn(studentIds)) {
+			statsByStudent.computeIfAbsent(stats.getStudentId(), studentId -> new HashMap<>()).put(stats.getGradeType(), stats);
+		}
+		return statsByStudent;
+	}
+
+	// the database sums in its own order, so sums only have to agree up to rounding
+	private static boolean sameSubjectStats(Map<String, StudentSubjectStats> stored, Map<String, StudentSubjectStats> rebuilt) {
+		if (!stored.keySet().equals(rebuilt.keySet())) {
+			return false;
+		}
+		for (StudentSubjectStats before : stored.values()) {
+			StudentSubjectStats after = rebuilt.get(before.getGradeType());
+			if (before.getGradeCount() != after.getGradeCount()
+					|| before.getMinGrade() != after.getMinGrade()
+					|| before.getMaxGrade() != after.getMaxGrade()
+					|| Math.abs(before.getGradeSum() - after.getGradeSum()) > SUM_TOLERANCE * Math.max(1, Math.abs(after.getGradeSum()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// returns the aggregate after the update, null when no grade of the subject is left
+	private StudentSubjectStats removeFromSubjectStats(int studentId, String gradeType, double grade) {
+		Optional<StudentSubjectStats> stats = subjectStatsDao.findByStudentIdAndGradeType(studentId, gradeType);
+		if (stats.isPresent() && stats.get().removeGrade(grade)) {
+			return stats.get();
+		}
+		return recomputeSubjectStats(studentId, gradeType);
+	}
+
+	private StudentSubjectStats recomputeSubjectStats(int studentId, String gradeType) {
+		GradeAggregate aggregate = null;
+
+		if (gradeType.equals("math")) {
+			aggregate = mathGradeDao.aggregateByStudentId(studentId);
+		}
+		if (gradeType.equals("science")) {
+			aggregate = scienceGradeDao.aggregateByStudentId(studentId);
+		}
+		if (gradeType.equals("history")) {
+			aggregate = historyGradeDao.aggregateByStudentId(studentId);
+		}
+
+		Optional<StudentSubjectStats> existingStats = subjectStatsDao.findByStudentIdAndGradeType(studentId, gradeType);
+
+		if (aggregate == null || aggregate.getGradeCount() == 0) {
+			existingStats.ifPresent(subjectStatsDao::delete);
+			return null;
+		}
+
+		StudentSubjectStats stats = existingStats.orElseGet(() -> new StudentSubjectStats(studentId, gradeType));
+		stats.setGradeCount((int) aggregate.getGradeCount());
+		stats.setGradeSum(aggregate.getGradeSum());
+		stats.setMinGrade(aggregate.getMinGrade());
+		stats.setMaxGrade(aggregate.getMaxGrade());
+		return subjectStatsDao.save(stats);
+	}
+
+	// pages of students are rebuilt in transactions of their own, under the same student row locks
+	// the grade writers take, so the rebuild can run while grades are written. Only students whose aggregates
+	// came out different get a new revision, a repair run over consistent data leaves ETags and cache entries valid
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public void rebuildSubjectStats() {
+
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		Cache studentInformationCache = cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE);
+		int after = 0;
+		List<Integer> studentIds;
+
+		do {
+			int pageStart = after;
+			studentIds = transaction.execute(status -> {
+				List<Integer> lockedIds = studentDao.lockPageAfter(pageStart, REBUILD_PAGE_SIZE);
+				if (lockedIds.isEmpty()) {
+					return lockedIds;
+				}
+
+				Map<Integer, Map<String, StudentSubjectStats>> stored = subjectStatsByStudent(lockedIds);
+				subjectStatsDao.deleteByStudentIdIn(lockedIds);
+				subjectStatsDao.insertStatsByStudentIdIn(lockedIds);
+				Map<Integer, Map<String, StudentSubjectStats>> rebuilt = subjectStatsByStudent(lockedIds);
+
+				List<Integer> changedIds = new ArrayList<>();
+				for (Integer studentId : lockedIds) {
+					if (!sameSubjectStats(stored.getOrDefault(studentId, Map.of()), rebuilt.getOrDefault(studentId, Map.of()))) {
+						changedIds.add(studentId);
+					}
+				}
+				if (!changedIds.isEmpty()) {
+					studentDao.incrementRevisionByIdIn(changedIds);
+					// the cache is transaction aware, evictions run after commit
+					changedIds.forEach(studentInformationCache::evict);
+				}
+				return lockedIds;
+			});
+			if (!studentIds.isEmpty()) {
+				after = studentIds.get(studentIds.size() - 1);
+			}
+		} while (studentIds.size() == REBUILD_PAGE_SIZE);
+
+		transaction.executeWithoutResult(status -> subjectStatsDao.deleteOrphanStats());
+
+		rankingIndex.allStudentsChanged();
+	}
+
+	// both queries aggregate in the database, only one row per histogram bucket comes back.
+	// Repeatable read gives them one snapshot, so the histogram always adds up to the count
+	@Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+	public SubjectStatistics getSubjectStatistics(String gradeType) {
+
+		SubjectGradeAggregate aggregate = null;
+		List<GradeBucketCount> buckets = null;
+
+		if (gradeType.equals("math")) {
+			aggregate = mathGradeDao.aggregateAll();
+			buckets = mathGradeDao.countByBucket();
+		}
+		if (gradeType.equals("science")) {
+			aggregate = scienceGradeDao.aggregateAll();
+			buckets = scienceGradeDao.countByBucket();
+		}
+		if (gradeType.equals("history")) {
+			aggregate = historyGradeDao.aggregateAll();
+			buckets = historyGradeDao.countByBucket();
+		}
+
+		if (aggregate == null) {
+			return null;
+		}
+
+		SubjectStatistics statistics = new SubjectStatistics(gradeType);
+		statistics.setCount(aggregate.getGradeCount());
+
+		if (aggregate.getGradeCount() > 0) {
+			statistics.setMean(GradeRounding.roundHalfUp(aggregate.getGradeSum() / aggregate.getGradeCount()));
+			statistics.setMin(aggregate.getMinGrade());
+			statistics.setMax(aggregate.getMaxGrade());
+			statistics.setStandardDeviation(GradeRounding.roundHalfUp(aggregate.getGradeStandardDeviation()));
+		}
+
+		long[] histogram = statistics.getHistogram();
+		for (GradeBucketCount bucket : buckets) {
+			histogram[Math.max(0, Math.min(bucket.getBucket(), SubjectStatistics.BUCKETS - 1))] += bucket.getGradeCount();
+		}
+
+		return statistics;
+	}
+
+	@Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+	public Map<String, SubjectStatistics> getClassStatistics() {
+
+		Map<String, SubjectStatistics> statistics = new LinkedHashMap<>();
+
+		for (String gradeType : GRADE_TYPES) {
+			statistics.put(gradeType, getSubjectStatistics(gradeType));
+		}
+
+		return statistics;
+	}
+
+	// served from memory, no connection needed
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public List<StudentRank> getLeaderboard(String gradeType, int limit) {
+		return rankingIndex.top(gradeType, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+	}
+
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public StudentRank getStudentRank(int studentId, String gradeType) {
+		return rankingIndex.rank(studentId, gradeType);
+	}
+
 	public Gradebook getGradebook () {
 
 		Iterable<CollegeStudent> collegeStudents = studentDao.findAll();
@@ -203,41 +739,94 @@ public class StudentAndGradeService {
 
 		Iterable<HistoryGrade> historyGrades = historyGradeDao.findAll();
 
-		Gradebook gradebook = new Gradebook();
+		return GradebookAssembler.assemble(collegeStudents, mathGrades, scienceGrades, historyGrades, subjectStatsDao.findAll());
+	}
 
-		for (CollegeStudent collegeStudent : collegeStudents) {
-			List<Grade> mathGradesPerStudent = new ArrayList<>();
-			List<Grade> scienceGradesPerStudent = new ArrayList<>();
-			List<Grade> historyGradesPerStudent = new ArrayList<>();
+	public GradebookPage getGradebookPage(int after, int limit) {
 
-			for (MathGrade grade : mathGrades) {
-				if (grade.getStudentId() == collegeStudent.getId()) {
-					mathGradesPerStudent.add(grade);
-				}
-			}
-			for (ScienceGrade grade : scienceGrades) {
-				if (grade.getStudentId() == collegeStudent.getId()) {
-					scienceGradesPerStudent.add(grade);
-				}
-			}
+		int pageSize = pageSize(limit);
 
-			for (HistoryGrade grade : historyGrades) {
-				if (grade.getStudentId() == collegeStudent.getId()) {
-					historyGradesPerStudent.add(grade);
-				}
-			}
+		// read one extra row to know whether another page follows
+		List<CollegeStudent> collegeStudents = studentDao.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, pageSize + 1));
+
+		Integer nextCursor = null;
 
-			studentGrades.setMathGradeResults(mathGradesPerStudent);
-			studentGrades.setScienceGradeResults(scienceGradesPerStudent);
-			studentGrades.setHistoryGradeResults(historyGradesPerStudent);
+		if (collegeStudents.size() > pageSize) {
+			collegeStudents = collegeStudents.subList(0, pageSize);
+			nextCursor = collegeStudents.get(pageSize - 1).getId();
+		}
 
-			GradebookCollegeStudent gradebookCollegeStudent = new GradebookCollegeStudent(collegeStudent.getId(), collegeStudent.getFirstname(), collegeStudent.getLastname(),
-					collegeStudent.getEmailAddress(), studentGrades);
+		if (collegeStudents.isEmpty()) {
+			return new GradebookPage(new ArrayList<>(), null);
+		}
 
-			gradebook.getStudents().add(gradebookCollegeStudent);
+		List<Integer> studentIds = new ArrayList<>(collegeStudents.size());
+		for (CollegeStudent collegeStudent : collegeStudents) {
+			studentIds.add(collegeStudent.getId());
 		}
 
-		return gradebook;
+		Gradebook gradebook = GradebookAssembler.assemble(collegeStudents, mathGradeDao.findByStudentIdIn(studentIds),
+				scienceGradeDao.findByStudentIdIn(studentIds), historyGradeDao.findByStudentIdIn(studentIds),
+				subjectStatsDao.findByStudentIdIn(studentIds));
+
+		return new GradebookPage(gradebook.getStudents(), nextCursor);
+	}
+
+	// tags a page by the ids and revisions of its students and of the row after it, which decides the next cursor.
+	// Taken from the database, so writes from any node move it
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public String gradebookPageETag(int after, int limit) {
+
+		StringBuilder revisions = new StringBuilder();
+		for (StudentRevision student : studentDao.findRevisionsAfter(after, pageSize(limit) + 1)) {
+			revisions.append(student.getId()).append(':').append(student.getRevision()).append(',');
+		}
+		return "\"" + DigestUtils.md5DigestAsHex(revisions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+
+	// null when the student does not exist. One primary key lookup: the revision is read from the database
+	// rather than kept in memory, so a 304 still costs a round trip but never hides a write made on another node
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public Long studentRevision(int id) {
+		return studentDao.findRevisionById(id);
+	}
+
+	// null when the student does not exist
+	public String studentETag(int id) {
+		Long revision = studentRevision(id);
+		return revision == null ? null : studentETag(id, revision);
+	}
+
+	public static String studentETag(int id, long revision) {
+		return "\"" + id + "-" + revision + "\"";
+	}
+
+	private static int pageSize(int limit) {
+		return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+	}
+
+	// every page is read in a read-only transaction of its own. Open-in-view binds one entity manager to the
+	// streaming thread for the whole response, so it is cleared after each page to keep memory flat
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void streamGradebook(Consumer<List<GradebookCollegeStudent>> pageConsumer) {
+
+		TransactionTemplate readPage = new TransactionTemplate(transactionManager);
+		readPage.setReadOnly(true);
+
+		int after = 0;
+		GradebookPage page;
+
+		do {
+			int pageStart = after;
+			page = readPage.execute(status -> getGradebookPage(pageStart, STREAM_PAGE_SIZE));
+			entityManager.clear();
+			if (!page.getStudents().isEmpty()) {
+				pageConsumer.accept(page.getStudents());
+			}
+			if (page.getNextCursor() != null) {
+				after = page.getNextCursor();
+			}
+		} while (page.getNextCursor() != null);
 	}
 
 	public void configureStudentInformationModel(int id, Model m) {
@@ -246,20 +835,16 @@ public class StudentAndGradeService {
 
 		m.addAttribute("student", studentEntity);
 
-		if (studentEntity.getStudentGrades().getMathGradeResults().size() > 0) {
-			m.addAttribute("mathAverage", studentEntity.getStudentGrades().findGradePointAverage(studentEntity.getStudentGrades().getMathGradeResults()));
-		} else {
-			m.addAttribute("mathAverage", "N/A");
-		}
-		if (studentEntity.getStudentGrades().getScienceGradeResults().size() > 0) {
-			m.addAttribute("scienceAverage", studentEntity.getStudentGrades().findGradePointAverage(studentEntity.getStudentGrades().getScienceGradeResults()));
-		} else {
-			m.addAttribute("scienceAverage", "N/A");
-		}
-		if (studentEntity.getStudentGrades().getHistoryGradeResults().size() > 0) {
-			m.addAttribute("historyAverage", studentEntity.getStudentGrades().findGradePointAverage(studentEntity.getStudentGrades().getHistoryGradeResults()));
+		addAverageAttribute(m, "mathAverage", studentEntity.getSubjectStats().get("math"));
+		addAverageAttribute(m, "scienceAverage", studentEntity.getSubjectStats().get("science"));
+		addAverageAttribute(m, "historyAverage", studentEntity.getSubjectStats().get("history"));
+	}
+
+	private void addAverageAttribute(Model m, String attributeName, StudentSubjectStats stats) {
+		if (stats != null && stats.getGradeCount() > 0) {
+			m.addAttribute(attributeName, stats.getAverage());
 		} else {
-			m.addAttribute("historyAverage", "N/A");
+			m.addAttribute(attributeName, "N/A");
 		}
 	}
 }
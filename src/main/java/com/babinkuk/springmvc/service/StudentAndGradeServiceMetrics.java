@@ -0,0 +1,74 @@
+package com.babinkuk.springmvc.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every public {@link StudentAndGradeService} call into {@value #METRIC_NAME} with a percentile histogram,
+ * tagged by method, grade type and exception.
+ *
+ * Repository calls are timed by Spring Boot itself ({@code spring.data.repository.invocations}), and pool waits by
+ * Hikari ({@code hikaricp.connections.acquire}); both get their histograms from application.properties.
+ */
+@Aspect
+@Component
+public class StudentAndGradeServiceMetrics {
+
+	public static final String METRIC_NAME = "gradebook.service";
+
+	static final String NO_GRADE_TYPE = "none";
+
+	// request parameters end up here, anything unknown is folded into one tag value to keep cardinality bounded
+	private static final List<String> GRADE_TYPES = Arrays.asList("math", "science", "history");
+
+	private final Map<Method, Integer> gradeTypeParameters = new ConcurrentHashMap<>();
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Around("execution(public * com.babinkuk.springmvc.service.StudentAndGradeService.*(..))")
+	public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+
+		MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+		Timer.Sample sample = Timer.start(registry);
+		String exception = "none";
+
+		try {
+			return joinPoint.proceed();
+		} catch (Throwable exc) {
+			exception = exc.getClass().getSimpleName();
+			throw exc;
+		} finally {
+			sample.stop(Timer.builder(METRIC_NAME)
+					.description("StudentAndGradeService calls")
+					.tag("method", signature.getName())
+					.tag("gradeType", gradeType(signature, joinPoint.getArgs()))
+					.tag("exception", exception)
+					.publishPercentileHistogram()
+					.register(registry));
+		}
+	}
+
+	private String gradeType(MethodSignature signature, Object[] args) {
+		int index = gradeTypeParameters.computeIfAbsent(signature.getMethod(),
+				method -> Arrays.asList(signature.getParameterNames()).indexOf("gradeType"));
+
+		if (index < 0) {
+			return NO_GRADE_TYPE;
+		}
+		return GRADE_TYPES.contains(args[index]) ? (String) args[index] : "other";
+	}
+}
@@ -0,0 +1,278 @@
+package com.babinkuk.springmvc.service;
+
+import com.babinkuk.springmvc.models.*;
+import com.babinkuk.springmvc.repository.HistoryGradesDao;
+import com.babinkuk.springmvc.repository.MathGradesDao;
+import com.babinkuk.springmvc.repository.ScienceGradesDao;
+import com.babinkuk.springmvc.repository.StudentDao;
+import com.babinkuk.springmvc.repository.StudentSubjectStatsDao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads one student with grades and subject aggregates for {@code studentInformation}.
+ *
+ * Three modes, picked with {@code gradebook.student-information.mode}:
+ * <ul>
+ * <li>{@code single-query} (default): one UNION query for the student, all grades and the aggregates.</li>
+ * <li>{@code sequential}: student, each subject table and the aggregates queried one after another.</li>
+ * <li>{@code parallel}: the same five queries sent at once on a bounded executor and joined with a timeout.</li>
+ * </ul>
+ * Every parallel query borrows its own pool connection, so the executor size is the connection budget of
+ * the fan-out and has to stay below the datasource pool size. When the executor queue is full the
+ * request falls back to the sequential path on the calling thread. On a timeout every query is cancelled:
+ * queued ones never start, running ones are interrupted.
+ *
+ * The parallel queries run in transactions of their own, so they do not share a snapshot: a write committing
+ * during the fan-out can show up in some of them only, e.g. a new grade without its aggregate. Such a result is
+ * answered once but never cached past the write, whose revision bump retires it.
+ */
+@Component
+public class StudentInformationLoader {
+
+	public static final String SINGLE_QUERY = "single-query";
+
+	public static final String SEQUENTIAL = "sequential";
+
+	public static final String PARALLEL = "parallel";
+
+	@Autowired
+	private StudentDao studentDao;
+
+	@Autowired
+	private MathGradesDao mathGradeDao;
+
+	@Autowired
+	private ScienceGradesDao scienceGradeDao;
+
+	@Autowired
+	private HistoryGradesDao historyGradeDao;
+
+	@Autowired
+	private StudentSubjectStatsDao subjectStatsDao;
+
+	private final String mode;
+
+	private final long timeoutMillis;
+
+	private final ThreadPoolExecutor executor;
+
+	public StudentInformationLoader(@Value("${gradebook.student-information.mode:" + SINGLE_QUERY + "}") String mode,
+									@Value("${gradebook.student-information.threads:4}") int threads,
+									@Value("${gradebook.student-information.queue:256}") int queueSize,
+									@Value("${gradebook.student-information.timeout-millis:2000}") long timeoutMillis) {
+
+		if (!mode.equals(SINGLE_QUERY) && !mode.equals(SEQUENTIAL) && !mode.equals(PARALLEL)) {
+			throw new IllegalArgumentException("Unknown gradebook.student-information.mode: " + mode);
+		}
+
+		this.mode = mode;
+		this.timeoutMillis = timeoutMillis;
+
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+			Thread thread = new Thread(runnable, "subject-query-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	public String getMode() {
+		return mode;
+	}
+
+	public GradebookCollegeStudent load(int id) {
+		if (mode.equals(PARALLEL)) {
+			return loadParallel(id);
+		}
+		if (mode.equals(SEQUENTIAL)) {
+			return loadSequential(id);
+		}
+		return loadSingleQuery(id);
+	}
+
+	public GradebookCollegeStudent loadSingleQuery(int id) {
+		List<StudentGradeRow> rows = studentDao.findStudentWithGradesAndStatsById(id);
+
+		if (rows.isEmpty()) {
+			return null;
+		}
+
+		List<GradeSnapshot> mathGradesList = new ArrayList<>();
+		List<GradeSnapshot> scienceGradesList = new ArrayList<>();
+		List<GradeSnapshot> historyGradesList = new ArrayList<>();
+		List<StudentSubjectStats> subjectStats = new ArrayList<>();
+
+		for (StudentGradeRow row : rows) {
+			if (row.getGradeCount() != null) {
+				subjectStats.add(toStudentSubjectStats(row));
+				continue;
+			}
+			if (row.getGradeId() == null) {
+				continue;
+			}
+			if (row.getGradeType().equals("math")) {
+				mathGradesList.add(toGradeSnapshot(row));
+			}
+			if (row.getGradeType().equals("science")) {
+				scienceGradesList.add(toGradeSnapshot(row));
+			}
+			if (row.getGradeType().equals("history")) {
+				historyGradesList.add(toGradeSnapshot(row));
+			}
+		}
+
+		StudentGradeRow student = rows.get(0);
+
+		return toGradebookCollegeStudent(student.getStudentId(), student.getFirstname(), student.getLastname(), student.getEmailAddress(),
+				new StudentGrades(mathGradesList, scienceGradesList, historyGradesList), subjectStats);
+	}
+
+	public GradebookCollegeStudent loadSequential(int id) {
+		Optional<CollegeStudent> student = studentDao.findById(id);
+
+		if (!student.isPresent()) {
+			return null;
+		}
+
+		return toGradebookCollegeStudent(student.get(), mathGradeDao.findGradeByStudentId(id), scienceGradeDao.findGradeByStudentId(id),
+				historyGradeDao.findGradeByStudentId(id), subjectStatsDao.findByStudentId(id));
+	}
+
+	public GradebookCollegeStudent loadParallel(int id) {
+		List<Future<?>> queries = new ArrayList<>(5);
+		Future<Optional<CollegeStudent>> student;
+		Future<Iterable<MathGrade>> mathGrades;
+		Future<Iterable<ScienceGrade>> scienceGrades;
+		Future<Iterable<HistoryGrade>> historyGrades;
+		Future<List<StudentSubjectStats>> subjectStats;
+
+		try {
+			student = submit(queries, () -> studentDao.findById(id));
+			mathGrades = submit(queries, () -> mathGradeDao.findGradeByStudentId(id));
+			scienceGrades = submit(queries, () -> scienceGradeDao.findGradeByStudentId(id));
+			historyGrades = submit(queries, () -> historyGradeDao.findGradeByStudentId(id));
+			subjectStats = submit(queries, () -> subjectStatsDao.findByStudentId(id));
+		} catch (RejectedExecutionException exc) {
+			// executor saturated, do not queue more work behind it
+			cancel(queries);
+			return loadSequential(id);
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		try {
+			for (Future<?> query : queries) {
+				query.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+		} catch (TimeoutException exc) {
+			cancel(queries);
+			throw new QueryTimeoutException("Student information for id " + id + " took longer than " + timeoutMillis + " ms");
+		} catch (InterruptedException exc) {
+			cancel(queries);
+			Thread.currentThread().interrupt();
+			throw new QueryTimeoutException("Interrupted while loading student information for id " + id);
+		} catch (ExecutionException exc) {
+			cancel(queries);
+			if (exc.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) exc.getCause();
+			}
+			throw new IllegalStateException(exc.getCause());
+		}
+
+		if (!resultOf(student).isPresent()) {
+			return null;
+		}
+
+		return toGradebookCollegeStudent(resultOf(student).get(), resultOf(mathGrades), resultOf(scienceGrades), resultOf(historyGrades),
+				resultOf(subjectStats));
+	}
+
+	private <T> Future<T> submit(List<Future<?>> queries, Callable<T> query) {
+		Future<T> future = executor.submit(query);
+		queries.add(future);
+		return future;
+	}
+
+	// interrupts the running queries, queued ones are dropped before they start
+	private void cancel(List<Future<?>> queries) {
+		for (Future<?> query : queries) {
+			query.cancel(true);
+		}
+		executor.purge();
+	}
+
+	// only called once every query has completed
+	private static <T> T resultOf(Future<T> query) {
+		try {
+			return query.get();
+		} catch (InterruptedException | ExecutionException exc) {
+			throw new IllegalStateException(exc);
+		}
+	}
+
+	private GradebookCollegeStudent toGradebookCollegeStudent(CollegeStudent student, Iterable<? extends Grade> mathGrades,
+															  Iterable<? extends Grade> scienceGrades, Iterable<? extends Grade> historyGrades,
+															  List<StudentSubjectStats> subjectStats) {
+
+		return toGradebookCollegeStudent(student.getId(), student.getFirstname(), student.getLastname(), student.getEmailAddress(),
+				new StudentGrades(toGradeSnapshots(mathGrades), toGradeSnapshots(scienceGrades), toGradeSnapshots(historyGrades)), subjectStats);
+	}
+
+	private GradebookCollegeStudent toGradebookCollegeStudent(int id, String firstname, String lastname, String emailAddress,
+															  StudentGrades grades, List<StudentSubjectStats> subjectStats) {
+
+		GradebookCollegeStudent gradebookCollegeStudent = new GradebookCollegeStudent(id, firstname, lastname, emailAddress, grades);
+
+		for (StudentSubjectStats stats : subjectStats) {
+			gradebookCollegeStudent.getSubjectStats().put(stats.getGradeType(), stats);
+		}
+
+		return gradebookCollegeStudent;
+	}
+
+	private List<GradeSnapshot> toGradeSnapshots(Iterable<? extends Grade> grades) {
+		List<GradeSnapshot> snapshots = new ArrayList<>();
+		for (Grade grade : grades) {
+			snapshots.add(GradeSnapshot.of(grade));
+		}
+		return snapshots;
+	}
+
+	private StudentSubjectStats toStudentSubjectStats(StudentGradeRow row) {
+		StudentSubjectStats stats = new StudentSubjectStats(row.getStudentId(), row.getGradeType());
+		stats.setGradeCount(row.getGradeCount());
+		stats.setGradeSum(row.getGradeSum());
+		stats.setMinGrade(row.getMinGrade());
+		stats.setMaxGrade(row.getMaxGrade());
+		return stats;
+	}
+
+	private GradeSnapshot toGradeSnapshot(StudentGradeRow row) {
+		return new GradeSnapshot(row.getGradeId(), row.getStudentId(), row.getGrade());
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
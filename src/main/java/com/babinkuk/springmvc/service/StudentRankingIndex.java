@@ -0,0 +1,311 @@
+package com.babinkuk.springmvc.service;
+
+import com.babinkuk.springmvc.models.StudentRank;
+import com.babinkuk.springmvc.models.StudentSubjectStats;
+import com.babinkuk.springmvc.util.GradeRounding;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory order-statistic index of per-student averages, one per subject, for leaderboards and percentile ranks.
+ *
+ * Students are ordered by their average rounded to cents. A sorted set gives the top K in O(log n + K), a Fenwick tree
+ * over the 10 001 possible averages counts the students above and below one in O(log 10 001).
+ *
+ * The index follows student_subject_stats without reading it back: a writer hands over the aggregate it just computed
+ * and the index applies it after the write commits. Each update carries a sequence number drawn while the writer
+ * holds the student row lock, so of two writes to a student the later one wins, whatever order their after-commit
+ * callbacks run in. A full rebuild runs whenever the aggregates are rebuilt (at startup by
+ * {@link StudentSubjectStatsRepairJob}) and after an import. It scans the table without holding up writers and swaps
+ * the result in, replaying the updates that were applied during the scan. Writes that bypass the service or the
+ * import are not seen.
+ */
+@Component
+public class StudentRankingIndex {
+
+	private static final String[] GRADE_TYPES = {"math", "science", "history"};
+
+	private static final int MAX_CENTS = 100 * 100;
+
+	private final JdbcTemplate jdbc;
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	// guards swapping the rankings and the replay list, never held across a query
+	private final Object updateLock = new Object();
+
+	private final Object rebuildLock = new Object();
+
+	private volatile Map<String, SubjectRanking> rankings = emptyRankings();
+
+	// updates applied while a rebuild scans, replayed onto its result; null when no rebuild runs
+	private List<Update> applied;
+
+	@Autowired
+	public StudentRankingIndex(DataSource dataSource) {
+		this.jdbc = new JdbcTemplate(dataSource);
+	}
+
+	// the best students first; null for an unknown grade type
+	public List<StudentRank> top(String gradeType, int limit) {
+		SubjectRanking ranking = rankings.get(gradeType);
+		return ranking == null ? null : ranking.top(limit);
+	}
+
+	// null when the student has no grades in the subject
+	public StudentRank rank(int studentId, String gradeType) {
+		SubjectRanking ranking = rankings.get(gradeType);
+		return ranking == null ? null : ranking.rank(studentId);
+	}
+
+	// call with the student row locked, stats is the subject's aggregate after the write or null when it has none left
+	public void subjectChanged(int studentId, String gradeType, StudentSubjectStats stats) {
+		Integer cents = stats == null || stats.getGradeCount() == 0 ? null : toCents(stats.getGradeCount(), stats.getGradeSum());
+		Update update = new Update(studentId, gradeType, cents, sequence.incrementAndGet());
+		afterCommit(() -> apply(List.of(update)));
+	}
+
+	// call with the student rows locked; deleted students leave every subject
+	public void studentsRemoved(Collection<Integer> studentIds) {
+		List<Update> updates = new ArrayList<>();
+		for (Integer studentId : studentIds) {
+			for (String gradeType : GRADE_TYPES) {
+				updates.add(new Update(studentId, gradeType, null, sequence.incrementAndGet()));
+			}
+		}
+		afterCommit(() -> apply(updates));
+	}
+
+	public void allStudentsChanged() {
+		afterCommit(this::rebuild);
+	}
+
+	private void apply(List<Update> updates) {
+		synchronized (updateLock) {
+			for (Update update : updates) {
+				rankings.get(update.gradeType).apply(update);
+			}
+			if (applied != null) {
+				applied.addAll(updates);
+			}
+		}
+	}
+
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			synchronized (updateLock) {
+				applied = new ArrayList<>();
+			}
+
+			// every update that committed before the scan is in the table; those applied during it are replayed below
+			Map<String, SubjectRanking> rebuilt = emptyRankings();
+			try {
+				jdbc.query("SELECT student_id, grade_type, grade_count, grade_sum FROM student_subject_stats",
+						rs -> {
+							SubjectRanking ranking = rebuilt.get(rs.getString(2));
+							if (ranking != null && rs.getInt(3) > 0) {
+								ranking.put(rs.getInt(1), toCents(rs.getInt(3), rs.getDouble(4)));
+							}
+						});
+			} catch (RuntimeException exc) {
+				synchronized (updateLock) {
+					applied = null;
+				}
+				throw exc;
+			}
+
+			synchronized (updateLock) {
+				for (Update update : applied) {
+					rebuilt.get(update.gradeType).apply(update);
+				}
+				// an update that committed before the scan but is applied only now must not undo what the scan read
+				for (Map.Entry<String, SubjectRanking> entry : rebuilt.entrySet()) {
+					entry.getValue().keepSequences(rankings.get(entry.getKey()));
+				}
+				rankings = rebuilt;
+				applied = null;
+			}
+		}
+	}
+
+	private static Map<String, SubjectRanking> emptyRankings() {
+		Map<String, SubjectRanking> rankings = new LinkedHashMap<>();
+		for (String gradeType : GRADE_TYPES) {
+			rankings.put(gradeType, new SubjectRanking(gradeType));
+		}
+		return rankings;
+	}
+
+	// the same rounding as StudentSubjectStats.getAverage
+	private static int toCents(int gradeCount, double gradeSum) {
+		double average = GradeRounding.roundHalfUp(gradeSum / gradeCount);
+		return (int) Math.max(0, Math.min(MAX_CENTS, Math.round(average * 100)));
+	}
+
+	private void afterCommit(Runnable update) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			update.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				update.run();
+			}
+		});
+	}
+
+	private static final class Update {
+
+		private final int studentId;
+
+		private final String gradeType;
+
+		// null removes the student from the subject
+		private final Integer cents;
+
+		private final long sequence;
+
+		Update(int studentId, String gradeType, Integer cents, long sequence) {
+			this.studentId = studentId;
+			this.gradeType = gradeType;
+			this.cents = cents;
+			this.sequence = sequence;
+		}
+	}
+
+	private static class SubjectRanking {
+
+		private final String gradeType;
+
+		private final Map<Integer, Integer> centsByStudent = new HashMap<>();
+
+		// sequence of the last update applied per student, kept after a removal until the next rebuild
+		private final Map<Integer, Long> sequences = new HashMap<>();
+
+		// best average first, ties by student id; see key()
+		private final TreeSet<Long> order = new TreeSet<>();
+
+		// counts[cents] as a Fenwick tree, index shifted by one
+		private final int[] tree = new int[MAX_CENTS + 2];
+
+		SubjectRanking(String gradeType) {
+			this.gradeType = gradeType;
+		}
+
+		synchronized void apply(Update update) {
+			Long last = sequences.get(update.studentId);
+			if (last != null && last > update.sequence) {
+				return;
+			}
+			sequences.put(update.studentId, update.sequence);
+			if (update.cents == null) {
+				remove(update.studentId);
+			} else {
+				put(update.studentId, update.cents);
+			}
+		}
+
+		// takes over the sequences of the students still ranked, removed students are forgotten
+		synchronized void keepSequences(SubjectRanking previous) {
+			synchronized (previous) {
+				for (Map.Entry<Integer, Long> entry : previous.sequences.entrySet()) {
+					if (centsByStudent.containsKey(entry.getKey())) {
+						sequences.merge(entry.getKey(), entry.getValue(), Math::max);
+					}
+				}
+			}
+		}
+
+		synchronized void put(int studentId, int cents) {
+			Integer previous = centsByStudent.put(studentId, cents);
+			if (previous != null) {
+				if (previous == cents) {
+					return;
+				}
+				order.remove(key(studentId, previous));
+				add(previous, -1);
+			}
+			order.add(key(studentId, cents));
+			add(cents, 1);
+		}
+
+		synchronized void remove(int studentId) {
+			Integer previous = centsByStudent.remove(studentId);
+			if (previous != null) {
+				order.remove(key(studentId, previous));
+				add(previous, -1);
+			}
+		}
+
+		synchronized List<StudentRank> top(int limit) {
+			List<StudentRank> top = new ArrayList<>(Math.min(limit, order.size()));
+			Iterator<Long> iterator = order.iterator();
+			int previousCents = -1;
+			int rank = 0;
+
+			for (int position = 1; position <= limit && iterator.hasNext(); position++) {
+				long key = iterator.next();
+				int studentId = (int) key;
+				int cents = centsByStudent.get(studentId);
+				if (cents != previousCents) {
+					rank = position;
+					previousCents = cents;
+				}
+				top.add(new StudentRank(studentId, gradeType, cents / 100.0, rank, percentile(cents), order.size()));
+			}
+			return top;
+		}
+
+		synchronized StudentRank rank(int studentId) {
+			Integer cents = centsByStudent.get(studentId);
+			if (cents == null) {
+				return null;
+			}
+			int above = order.size() - countUpTo(cents);
+			return new StudentRank(studentId, gradeType, cents / 100.0, above + 1, percentile(cents), order.size());
+		}
+
+		private double percentile(int cents) {
+			int below = countUpTo(cents - 1);
+			int equal = countUpTo(cents) - below;
+			return GradeRounding.roundHalfUp(100.0 * (below + equal / 2.0) / order.size());
+		}
+
+		// ascending Long order is descending average, then ascending student id
+		private static long key(int studentId, int cents) {
+			return ((long) (MAX_CENTS - cents) << 32) | (studentId & 0xffffffffL);
+		}
+
+		private void add(int cents, int delta) {
+			for (int i = cents + 1; i < tree.length; i += i & -i) {
+				tree[i] += delta;
+			}
+		}
+
+		// students with an average of at most cents
+		private int countUpTo(int cents) {
+			int count = 0;
+			for (int i = cents + 1; i > 0; i -= i & -i) {
+				count += tree[i];
+			}
+			return count;
+		}
+	}
+}
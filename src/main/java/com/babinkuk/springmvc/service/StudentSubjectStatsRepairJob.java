@@ -0,0 +1,27 @@
+package com.babinkuk.springmvc.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the student_subject_stats aggregates from the grade tables.
+ *
+ * Runs once at startup, so grades written before the aggregate table existed are picked up,
+ * and then on the gradebook.stats.repair.cron schedule (disabled unless the property is set).
+ * The rebuild locks one page of students at a time, so it is safe to run while grades are written.
+ */
+@Component
+public class StudentSubjectStatsRepairJob {
+
+	@Autowired
+	private StudentAndGradeService studentService;
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(cron = "${gradebook.stats.repair.cron:-}")
+	public void repair() {
+		studentService.rebuildSubjectStats();
+	}
+}
@@ -0,0 +1,36 @@
+package com.babinkuk.springmvc.util;
+
+/**
+ * Rounding of averages, percentiles and deviations to the two decimals the gradebook shows.
+ */
+public final class GradeRounding {
+
+    // doubles above this have no cents left to round
+    private static final double MAX_ROUNDABLE = 1e13;
+
+    private GradeRounding() {}
+
+    /**
+     * Rounds to two decimals, half up, with the same result as
+     * {@code BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue()}.
+     *
+     * {@code BigDecimal.valueOf} rounds the shortest decimal that reads back as {@code value}, so 1.005 goes up to 1.01
+     * even though the double is slightly below 1.005; a value counts as a tie when it is the double closest to one.
+     */
+    public static double roundHalfUp(double value) {
+        if (value < 0) {
+            // subtracting from zero keeps BigDecimal's +0.0 where plain negation would give -0.0
+            return 0 - roundHalfUp(-value);
+        }
+        if (!(value < MAX_ROUNDABLE)) {
+            return value;
+        }
+        double cents = Math.floor(value * 100);
+        // both integers are exact, so the division lands on the double closest to the decimal tie
+        double tie = (2 * cents + 1) / 200;
+        if (value >= tie) {
+            cents++;
+        }
+        return cents / 100;
+    }
+}
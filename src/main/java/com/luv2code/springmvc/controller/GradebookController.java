@@ -10,6 +10,8 @@ import org.springframework.web.bind.annotation.*;
 @Controller
 public class GradebookController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     @Autowired
     private Gradebook gradebook;
 
@@ -17,11 +19,12 @@ public class GradebookController {
     private StudentAndGradeService studentService;
 
     @RequestMapping(value = "/", method = RequestMethod.GET)
-    public String getStudents(Model m) {
+    public String getStudents(@RequestParam(value = "after", defaultValue = "0") int after,
+    						@RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+    						Model m) {
     	
-    	// get list of students and add as model attribute
-		Iterable<CollegeStudent> collegeStudents = studentService.getGradebook();
-        m.addAttribute("students", collegeStudents);
+    	// get page of students and add as model attribute
+        studentService.configureGradebookModel(after, limit, m);
         return "index";
     }
     
@@ -29,9 +32,8 @@ public class GradebookController {
     public String createStudent(@ModelAttribute("student") CollegeStudent student, Model m) {
         studentService.createStudent(student.getFirstname(), student.getLastname(), student.getEmailAddress());
         
-        // get list of students and add as model attribute
-		Iterable<CollegeStudent> collegeStudents = studentService.getGradebook();
-        m.addAttribute("students", collegeStudents);
+        // get first page of students and add as model attribute
+        studentService.configureGradebookModel(0, DEFAULT_PAGE_SIZE, m);
         
         return "index";
     }
@@ -46,9 +48,8 @@ public class GradebookController {
 
         studentService.deleteStudent(id);
         
-        // get list of students and add as model attribute
-		Iterable<CollegeStudent> collegeStudents = studentService.getGradebook();
-        m.addAttribute("students", collegeStudents);
+        // get first page of students and add as model attribute
+        studentService.configureGradebookModel(0, DEFAULT_PAGE_SIZE, m);
         
         return "index";
     }
@@ -1,11 +1,16 @@
 package com.luv2code.springmvc.repository;
 
 import com.luv2code.springmvc.models.CollegeStudent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface StudentDao extends CrudRepository<CollegeStudent, Integer> {
 
     public CollegeStudent findByEmailAddress(String emailAddress);
+
+    public List<CollegeStudent> findByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
 }
@@ -13,6 +13,7 @@ import com.luv2code.springmvc.repository.ScienceGradesDao;
 import com.luv2code.springmvc.repository.StudentDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
@@ -25,6 +26,8 @@ import java.util.Optional;
 @Transactional
 public class StudentAndGradeService {
 
+	public static final int MAX_PAGE_SIZE = 1000;
+
 	@Autowired
 	private StudentDao studentDao;
 	
@@ -82,6 +85,23 @@ public class StudentAndGradeService {
         return collegeStudents;
     }
 
+    public void configureGradebookModel(int after, int limit, Model m) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        
+        // read one extra row to know whether another page follows
+        List<CollegeStudent> collegeStudents = studentDao.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, pageSize + 1));
+        
+        Integer nextCursor = null;
+        if (collegeStudents.size() > pageSize) {
+            collegeStudents = collegeStudents.subList(0, pageSize);
+            nextCursor = collegeStudents.get(pageSize - 1).getId();
+        }
+        
+        m.addAttribute("students", collegeStudents);
+        m.addAttribute("nextCursor", nextCursor);
+        m.addAttribute("limit", pageSize);
+    }
+
 	public boolean createGrade(double grade, int studentId, String gradeType) {
 		// check if studentid exists
 		if (!checkIfStudentIsNull(studentId)) {
@@ -0,0 +1,21 @@
+-- One-off MySQL migration from IDENTITY ids to pooled sequence ids.
+-- MySQL has no sequences, so hibernate keeps each sequence in a one-row table (next_val).
+-- Run once before starting the new version on an existing database; every node then allocates ids
+-- in blocks of 50 from these tables. next_val starts 51 past the current max id, because the pooled
+-- optimizer hands out the 50 ids below the value it reads.
+
+CREATE TABLE IF NOT EXISTS student_seq (next_val BIGINT);
+DELETE FROM student_seq;
+INSERT INTO student_seq (next_val) SELECT GREATEST(COALESCE(MAX(id), 0) + 51, 1000) FROM student;
+
+CREATE TABLE IF NOT EXISTS math_grade_seq (next_val BIGINT);
+DELETE FROM math_grade_seq;
+INSERT INTO math_grade_seq (next_val) SELECT GREATEST(COALESCE(MAX(id), 0) + 51, 1000) FROM math_grade;
+
+CREATE TABLE IF NOT EXISTS science_grade_seq (next_val BIGINT);
+DELETE FROM science_grade_seq;
+INSERT INTO science_grade_seq (next_val) SELECT GREATEST(COALESCE(MAX(id), 0) + 51, 1000) FROM science_grade;
+
+CREATE TABLE IF NOT EXISTS history_grade_seq (next_val BIGINT);
+DELETE FROM history_grade_seq;
+INSERT INTO history_grade_seq (next_val) SELECT GREATEST(COALESCE(MAX(id), 0) + 51, 1000) FROM history_grade;
@@ -0,0 +1,12 @@
+-- One-off MySQL migration adding the unique index on student.email_address.
+-- Login by email (GET /students/by-email) relies on it, and it stops duplicate registrations.
+-- The application stores addresses trimmed and lower-cased (StudentAndGradeService.normalizeEmail),
+-- so existing rows are normalized first and lookups match whatever the column collation.
+-- Resolve duplicates next: the second query lists them and has to come back empty before the ALTER succeeds.
+
+UPDATE student SET email_address = LOWER(TRIM(email_address)) WHERE email_address IS NOT NULL;
+
+SELECT email_address, COUNT(*) AS students, GROUP_CONCAT(id ORDER BY id) AS student_ids
+FROM student GROUP BY email_address HAVING COUNT(*) > 1;
+
+ALTER TABLE student ADD CONSTRAINT uk_student_email_address UNIQUE (email_address);
@@ -0,0 +1,151 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.models.StudentSubjectStats;
+import com.babinkuk.springmvc.models.StudentSubjectStatsId;
+import com.babinkuk.springmvc.repository.StudentSubjectStatsDao;
+import com.babinkuk.springmvc.service.StudentAndGradeService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs createGrade from several threads at once and checks that every grade and every
+ * subject aggregate comes out right for each thread count.
+ * Throughput per thread count is measured by GradeCreationBenchmark in the benchmarks module.
+ */
+@TestPropertySource(locations = "/application-test.properties", properties = "spring.jpa.show-sql=false")
+@SpringBootTest
+public class GradeCreationStressTest {
+
+	private static final int NUMBER_OF_STUDENTS = 64;
+
+	private static final int GRADES_PER_THREAD = 250;
+
+	private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private StudentAndGradeService studentService;
+
+	@Autowired
+	private StudentSubjectStatsDao subjectStatsDao;
+
+	@BeforeEach
+	public void setupDatabase() {
+		for (int id = 1; id <= NUMBER_OF_STUDENTS; id++) {
+			jdbc.update("insert into student(id, firstname, lastname, email_address) values (?, 'Student', ?, ?)",
+					id, "No" + id, "student" + id + "@babinkuk.com");
+		}
+	}
+
+	@Test
+	public void concurrentCreateGrade() throws Exception {
+
+		int expectedGrades = 0;
+
+		for (int threads : THREAD_COUNTS) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<Integer>> results = new ArrayList<>();
+
+			try {
+				for (int t = 0; t < threads; t++) {
+					int thread = t;
+					results.add(executor.submit(() -> {
+						int created = 0;
+						for (int i = 0; i < GRADES_PER_THREAD; i++) {
+							int studentId = (thread * GRADES_PER_THREAD + i) % NUMBER_OF_STUDENTS + 1;
+							if (studentService.createGrade(gradeFor(studentId), studentId, "math")) {
+								created++;
+							}
+						}
+						return created;
+					}));
+				}
+				for (Future<Integer> result : results) {
+					assertEquals(GRADES_PER_THREAD, result.get(60, TimeUnit.SECONDS));
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+
+			expectedGrades += threads * GRADES_PER_THREAD;
+		}
+
+		assertEquals(expectedGrades, jdbc.queryForObject("select count(*) from math_grade", Integer.class));
+
+		// every aggregate must match its grade rows exactly, lost updates would show up here
+		for (int studentId = 1; studentId <= NUMBER_OF_STUDENTS; studentId++) {
+			StudentSubjectStats stats = subjectStatsDao.findById(new StudentSubjectStatsId(studentId, "math")).get();
+			int count = jdbc.queryForObject("select count(*) from math_grade where student_id = ?", Integer.class, studentId);
+			double sum = jdbc.queryForObject("select sum(grade) from math_grade where student_id = ?", Double.class, studentId);
+			assertEquals(count, stats.getGradeCount(), "grade count of student " + studentId);
+			assertEquals(sum, stats.getGradeSum(), 0.0001, "grade sum of student " + studentId);
+			assertEquals(gradeFor(studentId), stats.getMaxGrade(), "max grade of student " + studentId);
+		}
+	}
+
+	@Test
+	public void concurrentFirstGrades() throws Exception {
+
+		int threads = 4;
+		// all threads write the first grade of the same student at the same moment, so they race to create its aggregate row
+		CyclicBarrier sameStudent = new CyclicBarrier(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Integer>> results = new ArrayList<>();
+
+		try {
+			for (int t = 0; t < threads; t++) {
+				results.add(executor.submit(() -> {
+					int created = 0;
+					for (int studentId = 1; studentId <= NUMBER_OF_STUDENTS; studentId++) {
+						sameStudent.await(10, TimeUnit.SECONDS);
+						if (studentService.createGrade(gradeFor(studentId), studentId, "science")) {
+							created++;
+						}
+					}
+					return created;
+				}));
+			}
+			for (Future<Integer> result : results) {
+				assertEquals(NUMBER_OF_STUDENTS, result.get(60, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int studentId = 1; studentId <= NUMBER_OF_STUDENTS; studentId++) {
+			StudentSubjectStats stats = subjectStatsDao.findById(new StudentSubjectStatsId(studentId, "science")).get();
+			assertEquals(threads, stats.getGradeCount(), "grade count of student " + studentId);
+			assertEquals(threads * gradeFor(studentId), stats.getGradeSum(), 0.0001, "grade sum of student " + studentId);
+		}
+	}
+
+	private double gradeFor(int studentId) {
+		return 50 + studentId % 50;
+	}
+
+	@AfterEach
+	public void setupAfterTransaction() {
+		jdbc.execute("DELETE FROM student");
+		jdbc.execute("DELETE FROM math_grade");
+		jdbc.execute("DELETE FROM science_grade");
+		jdbc.execute("DELETE FROM student_subject_stats");
+	}
+}
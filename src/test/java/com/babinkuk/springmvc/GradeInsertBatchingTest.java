@@ -0,0 +1,85 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.models.GradeBatchItem;
+import com.babinkuk.springmvc.models.GradeBatchSummary;
+import com.babinkuk.springmvc.service.StudentAndGradeService;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that pooled sequence ids let hibernate batch grade inserts, by the number of prepared statements.
+ * The insert time against IDENTITY ids is measured by GradeInsertBenchmark in the benchmarks module.
+ */
+@TestPropertySource(locations = "/application-test.properties",
+		properties = {"spring.jpa.show-sql=false", "spring.jpa.properties.hibernate.generate_statistics=true"})
+@SpringBootTest
+public class GradeInsertBatchingTest {
+
+	private static final int NUMBER_OF_GRADES = 10_000;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private StudentAndGradeService studentService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Value("${sql.script.create.student}")
+	private String sqlAddStudent;
+
+	@Value("${sql.script.delete.student}")
+	private String sqlDeleteStudent;
+
+	@Value("${sql.script.delete.math.grade}")
+	private String sqlDeleteMathGrade;
+
+	@BeforeEach
+	public void setupDatabase() {
+		jdbc.execute(sqlAddStudent);
+	}
+
+	@Test
+	public void createGradesBatchesInserts() {
+
+		List<GradeBatchItem> grades = new ArrayList<>(NUMBER_OF_GRADES);
+		for (int i = 0; i < NUMBER_OF_GRADES; i++) {
+			grades.add(new GradeBatchItem(1, "math", i % 101));
+		}
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		GradeBatchSummary summary = studentService.createGrades(grades);
+
+		assertEquals(NUMBER_OF_GRADES, summary.getCreated());
+
+		// inserts are sent in batches and sequence values are fetched once per 50 ids
+		long statements = statistics.getPrepareStatementCount();
+		assertTrue(statements < NUMBER_OF_GRADES / 10, "inserts should be batched, prepared statements: " + statements);
+	}
+
+	@AfterEach
+	public void setupAfterTransaction() {
+		jdbc.execute(sqlDeleteStudent);
+		jdbc.execute(sqlDeleteMathGrade);
+		jdbc.execute("DELETE FROM student_subject_stats");
+	}
+}
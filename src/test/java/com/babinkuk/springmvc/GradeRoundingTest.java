@@ -0,0 +1,42 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.util.GradeRounding;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GradeRoundingTest {
+
+	@Test
+	public void roundHalfUpMatchesBigDecimal() {
+
+		for (double value : new double[] {0, 1.005, 0.285, 2.675, 80.125, 99.995, 0.5699999999999999, 100, 1e-9, -1.005, 33.333333333333336}) {
+			assertEquals(bigDecimalRound(value), GradeRounding.roundHalfUp(value), "rounding " + value);
+		}
+
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < 1_000_000; i++) {
+			double value = random.nextDouble(0, 100);
+			assertEquals(bigDecimalRound(value), GradeRounding.roundHalfUp(value), "rounding " + value);
+
+			// every exact three decimal tie, and its neighbours
+			double tie = random.nextInt(100_000) / 1000.0;
+			for (double candidate : new double[] {tie, Math.nextDown(tie), Math.nextUp(tie)}) {
+				assertEquals(bigDecimalRound(candidate), GradeRounding.roundHalfUp(candidate), "rounding " + candidate);
+			}
+
+			// averages of a few grades, which is what actually gets rounded
+			double average = (random.nextInt(10_001) + random.nextInt(10_001) + random.nextInt(10_001)) / 100.0 / 3;
+			assertEquals(bigDecimalRound(average), GradeRounding.roundHalfUp(average), "rounding " + average);
+		}
+	}
+
+	private double bigDecimalRound(double value) {
+		return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+	}
+}
@@ -0,0 +1,113 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.models.*;
+import com.babinkuk.springmvc.service.GradebookAssembler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GradebookAssemblerTest {
+
+	private static final int GRADES_PER_STUDENT = 10;
+
+	@Test
+	public void assembleGroupsGradesByStudent() {
+
+		List<CollegeStudent> students = createStudents(3);
+		List<MathGrade> mathGrades = new ArrayList<>();
+		mathGrades.add(mathGrade(1, 1, 90.00));
+		mathGrades.add(mathGrade(2, 3, 80.00));
+		mathGrades.add(mathGrade(3, 1, 70.00));
+
+		Gradebook gradebook = GradebookAssembler.assemble(students, mathGrades, new ArrayList<ScienceGrade>(), new ArrayList<HistoryGrade>(), new ArrayList<StudentSubjectStats>());
+
+		assertEquals(3, gradebook.getStudents().size());
+		assertEquals(2, gradebook.getStudents().get(0).getStudentGrades().getMathGradeResults().size());
+		assertEquals(0, gradebook.getStudents().get(1).getStudentGrades().getMathGradeResults().size());
+		assertEquals(1, gradebook.getStudents().get(2).getStudentGrades().getMathGradeResults().size());
+		assertNotNull(gradebook.getStudents().get(1).getStudentGrades().getScienceGradeResults());
+		assertNotSame(gradebook.getStudents().get(0).getStudentGrades(), gradebook.getStudents().get(1).getStudentGrades(),
+				"each student gets its own grades");
+		assertThrows(UnsupportedOperationException.class,
+				() -> gradebook.getStudents().get(0).getStudentGrades().getMathGradeResults().add(new GradeSnapshot(4, 1, 60.00)),
+				"grade snapshots are read-only");
+	}
+
+	@Test
+	public void assembleMatchesNestedLoopResult() {
+
+		int numberOfStudents = 2_000;
+		List<CollegeStudent> students = createStudents(numberOfStudents);
+		List<MathGrade> mathGrades = createMathGrades(numberOfStudents);
+
+		List<List<GradeSnapshot>> expected = nestedLoopGrouping(students, mathGrades);
+		Gradebook gradebook = GradebookAssembler.assemble(students, mathGrades, new ArrayList<ScienceGrade>(), new ArrayList<HistoryGrade>(), new ArrayList<StudentSubjectStats>());
+
+		for (int i = 0; i < numberOfStudents; i++) {
+			assertEquals(expected.get(i), gradebook.getStudents().get(i).getStudentGrades().getMathGradeResults());
+		}
+	}
+
+	@Test
+	public void assembleAtScale() {
+
+		int numberOfStudents = 100_000;
+		List<CollegeStudent> students = createStudents(numberOfStudents);
+		List<MathGrade> mathGrades = createMathGrades(numberOfStudents);
+
+		// assembly time is measured by GradebookAssemblyBenchmark in the benchmarks module
+		Gradebook gradebook = GradebookAssembler.assemble(students, mathGrades, new ArrayList<ScienceGrade>(), new ArrayList<HistoryGrade>(), new ArrayList<StudentSubjectStats>());
+
+		assertEquals(numberOfStudents, gradebook.getStudents().size());
+		for (GradebookCollegeStudent student : gradebook.getStudents()) {
+			assertEquals(GRADES_PER_STUDENT, student.getStudentGrades().getMathGradeResults().size());
+		}
+	}
+
+	private List<CollegeStudent> createStudents(int numberOfStudents) {
+		List<CollegeStudent> students = new ArrayList<>(numberOfStudents);
+		for (int id = 1; id <= numberOfStudents; id++) {
+			CollegeStudent student = new CollegeStudent("Student", "No" + id, "student" + id + "@babinkuk.com");
+			student.setId(id);
+			students.add(student);
+		}
+		return students;
+	}
+
+	private List<MathGrade> createMathGrades(int numberOfStudents) {
+		List<MathGrade> grades = new ArrayList<>(numberOfStudents * GRADES_PER_STUDENT);
+		int id = 1;
+		// interleave students so grades for one student are spread across the table
+		for (int round = 0; round < GRADES_PER_STUDENT; round++) {
+			for (int studentId = 1; studentId <= numberOfStudents; studentId++) {
+				grades.add(mathGrade(id++, studentId, (studentId + round) % 101));
+			}
+		}
+		return grades;
+	}
+
+	private MathGrade mathGrade(int id, int studentId, double grade) {
+		MathGrade mathGrade = new MathGrade(grade);
+		mathGrade.setId(id);
+		mathGrade.setStudentId(studentId);
+		return mathGrade;
+	}
+
+	private List<List<GradeSnapshot>> nestedLoopGrouping(List<CollegeStudent> students, List<MathGrade> mathGrades) {
+		List<List<GradeSnapshot>> result = new ArrayList<>();
+		for (CollegeStudent student : students) {
+			List<GradeSnapshot> mathGradesPerStudent = new ArrayList<>();
+			for (MathGrade grade : mathGrades) {
+				if (grade.getStudentId() == student.getId()) {
+					mathGradesPerStudent.add(GradeSnapshot.of(grade));
+				}
+			}
+			result.add(mathGradesPerStudent);
+		}
+		return result;
+	}
+}
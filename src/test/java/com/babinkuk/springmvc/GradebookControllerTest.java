@@ -12,27 +12,43 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.babinkuk.springmvc.controller.GradebookController;
 import com.babinkuk.springmvc.models.CollegeStudent;
+import com.babinkuk.springmvc.models.GradeBatchItem;
 import com.babinkuk.springmvc.models.MathGrade;
 import com.babinkuk.springmvc.repository.MathGradesDao;
 import com.babinkuk.springmvc.repository.StudentDao;
+import com.babinkuk.springmvc.service.RegisteredEmails;
 import com.babinkuk.springmvc.service.StudentAndGradeService;
+import com.babinkuk.springmvc.service.StudentRankingIndex;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 @TestPropertySource("/application-test.properties")
 @SpringBootTest
@@ -66,6 +82,18 @@ public class GradebookControllerTest {
 	@Autowired
 	private MockMvc mockMvc;
 	
+	@Autowired
+	private StudentRankingIndex rankingIndex;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	@Autowired
+	private RegisteredEmails registeredEmails;
+	
+	@Autowired
+	private StudentAndGradeService studentService;
+	
 	@Value("${sql.script.create.student}")
 	private String sqlAddStudent;
 	
@@ -109,6 +137,8 @@ public class GradebookControllerTest {
 		jdbc.execute(sqlAddMathGrade);
 		jdbc.execute(sqlAddScienceGrade);
 		jdbc.execute(sqlAddHistoryGrade);
+		// as on startup, the seeded addresses go into the duplicate registration filter
+		registeredEmails.load();
 	}
 	
 	@AfterEach
@@ -143,6 +173,159 @@ public class GradebookControllerTest {
 		
 	}
 	
+	@Test
+	public void getStudentsHttpRequestNotModified() throws Exception {
+		
+		String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/"))
+			.andExpect(status().isOk())
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// unchanged gradebook, nothing is sent back
+		mockMvc.perform(MockMvcRequestBuilders.get("/").header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""));
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(1)));
+	}
+	
+	@Test
+	public void getStudentsHttpRequestPaged() throws Exception {
+		
+		// add two more students
+		for (String name : new String[] {"Tito", "Toto"}) {
+			CollegeStudent newStudent = new CollegeStudent(name, name, name.toLowerCase() + "@babinkuk.com");
+			entityManager.persist(newStudent);
+		}
+		entityManager.flush();
+		
+		// first page
+		MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/").param("limit", "2"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(2)))
+			.andExpect(jsonPath("$[0].id", is(1)))
+			.andExpect(header().exists(GradebookController.NEXT_CURSOR_HEADER))
+			.andReturn();
+		
+		String nextCursor = mvcResult.getResponse().getHeader(GradebookController.NEXT_CURSOR_HEADER);
+		
+		// the next link is built from the request, context path and query parameters included
+		mockMvc.perform(MockMvcRequestBuilders.get("/gradebook/?limit=2&sort=id").contextPath("/gradebook"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.LINK,
+					"<http://localhost/gradebook/?limit=2&sort=id&after=" + nextCursor + ">; rel=\"next\""));
+		
+		// last page, no next cursor
+		mockMvc.perform(MockMvcRequestBuilders.get("/").param("after", nextCursor).param("limit", "2"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(1)))
+			.andExpect(jsonPath("$[0].firstname", is("Toto")))
+			.andExpect(jsonPath("$[0].studentGrades.mathGradeResults", hasSize(0)))
+			.andExpect(header().doesNotExist(GradebookController.NEXT_CURSOR_HEADER));
+		
+		// without a limit the next link carries the default page size
+		for (int i = 0; i < GradebookController.DEFAULT_PAGE_SIZE; i++) {
+			entityManager.persist(new CollegeStudent("Student", "No" + i, "student" + i + "@babinkuk.com"));
+		}
+		entityManager.flush();
+		
+		mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(GradebookController.DEFAULT_PAGE_SIZE)))
+			.andReturn();
+		
+		assertEquals("<http://localhost/?limit=" + GradebookController.DEFAULT_PAGE_SIZE + "&after="
+				+ mvcResult.getResponse().getHeader(GradebookController.NEXT_CURSOR_HEADER) + ">; rel=\"next\"",
+				mvcResult.getResponse().getHeader(HttpHeaders.LINK));
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // streaming reads on another thread, test data must be committed
+	public void getStudentsHttpRequestNdjson() throws Exception {
+		
+		// add another student
+		studentDao.save(new CollegeStudent("Tito", "Tito", "tito@babinkuk.com"));
+		
+		MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/")
+				.accept(GradebookController.APPLICATION_NDJSON_VALUE))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		
+		String body = mockMvc.perform(asyncDispatch(mvcResult))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(GradebookController.APPLICATION_NDJSON_VALUE))
+			.andReturn().getResponse().getContentAsString();
+		
+		// one json document per line
+		String[] lines = body.split("\n");
+		assertEquals(2, lines.length);
+		assertEquals(1, objectMApper.readTree(lines[0]).get("id").asInt());
+		assertEquals("Tito", objectMApper.readTree(lines[1]).get("firstname").asText());
+		assertEquals(1, objectMApper.readTree(lines[0]).get("studentGrades").get("mathGradeResults").size());
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // export reads on another thread, test data must be committed
+	public void exportGradebookHttpRequest() throws Exception {
+		
+		// add a student without grades, name needs quoting
+		studentDao.save(new CollegeStudent("Tito, Jr.", "Tito", "tito@babinkuk.com"));
+		
+		MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/export").param("format", "csv"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		
+		String csv = mockMvc.perform(asyncDispatch(mvcResult))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType("text/csv"))
+			.andReturn().getResponse().getContentAsString();
+		
+		String[] lines = csv.split("\n");
+		assertEquals(5, lines.length, "header, 3 grades of student 1, student without grades");
+		assertEquals("studentId,firstname,lastname,emailAddress,gradeType,gradeId,grade", lines[0]);
+		assertTrue(lines[4].endsWith(",\"Tito, Jr.\",Tito,tito@babinkuk.com,,,"), lines[4]);
+		
+		// gzip ndjson
+		mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/export").param("format", "ndjson")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		
+		byte[] gzipped = mockMvc.perform(asyncDispatch(mvcResult))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+			.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+			.andReturn().getResponse().getContentAsByteArray();
+		
+		String ndjson = new String(new GZIPInputStream(new ByteArrayInputStream(gzipped)).readAllBytes(), StandardCharsets.UTF_8);
+		lines = ndjson.split("\n");
+		assertEquals(4, lines.length);
+		assertEquals(1, objectMApper.readTree(lines[0]).get("studentId").asInt());
+		
+		// gzip refused with q=0, even though "*" would allow it
+		mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/export").param("format", "ndjson")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *;q=0.5"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		
+		ndjson = mockMvc.perform(asyncDispatch(mvcResult))
+			.andExpect(status().isOk())
+			.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+			.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+			.andReturn().getResponse().getContentAsString();
+		assertEquals(4, ndjson.split("\n").length);
+	}
+	
+	@Test
+	public void exportGradebookHttpRequestInvalidFormat() throws Exception {
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/export").param("format", "xml"))
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.status", is(400)));
+	}
+	
 	@Test
 	public void createStudentsHttpRequest() throws Exception {
 		
@@ -151,8 +334,9 @@ public class GradebookControllerTest {
 		student.setLastname("Tito");
 		student.setEmailAddress("tito@babinkuk.com");
 		
-		// create student
+		// create student, asking for the whole gradebook back
 		mockMvc.perform(MockMvcRequestBuilders.post("/")
+			.param("gradebook", "true")
 			.contentType(APPLICATION_JSON_UTF8)
 			.content(objectMApper.writeValueAsString(student))) // generate json from java object
 			.andExpect(status().isOk())
@@ -163,14 +347,70 @@ public class GradebookControllerTest {
 		assertNotNull(verifyStudent, "Student should not be null");
 	}
 	
+	@Test
+	public void createStudentsHttpRequestCreated() throws Exception {
+		
+		// set student
+		student.setFirstname("Tito");
+		student.setLastname("Tito");
+		student.setEmailAddress("tito@babinkuk.com");
+		
+		// create student, default response is the created student only
+		MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post("/")
+			.contentType(APPLICATION_JSON_UTF8)
+			.content(objectMApper.writeValueAsString(student)))
+			.andExpect(status().isCreated())
+			.andExpect(jsonPath("$.firstname", is("Tito")))
+			.andExpect(jsonPath("$.emailAddress", is("tito@babinkuk.com")))
+			.andReturn();
+		
+		CollegeStudent verifyStudent = studentDao.findByEmailAddress("tito@babinkuk.com");
+		assertNotNull(verifyStudent, "Student should not be null");
+		assertEquals("http://localhost/studentInformation/" + verifyStudent.getId(), mvcResult.getResponse().getHeader(HttpHeaders.LOCATION));
+	}
+	
+	@Test
+	public void findStudentByEmailHttpRequest() throws Exception {
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/students/by-email").param("email", "Samba.Rumba@babinkuk.com"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$.id", is(1)))
+			.andExpect(jsonPath("$.emailAddress", is("samba.rumba@babinkuk.com")));
+		
+		// unknown email
+		mockMvc.perform(MockMvcRequestBuilders.get("/students/by-email").param("email", "nobody@babinkuk.com"))
+			.andExpect(status().is4xxClientError())
+			.andExpect(jsonPath("$.status", is(404)));
+		
+		cacheManager.getCache(MvcTestingExampleApplication.STUDENT_ID_BY_EMAIL_CACHE).clear();
+	}
+	
+	@Test
+	public void createStudentsHttpRequestDuplicateEmail() throws Exception {
+		
+		// set student with the email address of the student in the database
+		student.setFirstname("Samba");
+		student.setLastname("Rumba");
+		student.setEmailAddress("Samba.Rumba@babinkuk.com");
+		
+		mockMvc.perform(MockMvcRequestBuilders.post("/")
+			.contentType(APPLICATION_JSON_UTF8)
+			.content(objectMApper.writeValueAsString(student)))
+			.andExpect(status().isConflict())
+			.andExpect(jsonPath("$.status", is(409)))
+			.andExpect(jsonPath("$.message", is("Student with this email address already exists")));
+	}
+	
 	@Test
 	public void deleteStudentsHttpRequest() throws Exception {
 		
 		// check if studentid 1 exists
 		assertTrue(studentDao.findById(1).isPresent());
 		
-		// delete student
-		mockMvc.perform(MockMvcRequestBuilders.delete("/student/{id}", 1))
+		// delete student, asking for the whole gradebook back
+		mockMvc.perform(MockMvcRequestBuilders.delete("/student/{id}", 1)
+			.param("gradebook", "true"))
 			.andExpect(status().isOk())
 			.andExpect(content().contentType(APPLICATION_JSON_UTF8))
 			.andExpect(jsonPath("$", hasSize(0))); // verify json root element $ is size 0
@@ -179,6 +419,38 @@ public class GradebookControllerTest {
 		assertFalse(studentDao.findById(1).isPresent());
 	}
 	
+	@Test
+	public void deleteStudentsHttpRequestDeletedStudent() throws Exception {
+		
+		// delete student, default response is the deleted student only
+		mockMvc.perform(MockMvcRequestBuilders.delete("/student/{id}", 1))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$.id", is(1)));
+		
+		assertFalse(studentDao.findById(1).isPresent());
+	}
+	
+	@Test
+	public void deleteStudentsInBulkHttpRequest() throws Exception {
+		
+		// delete student 1 and an id without a student
+		mockMvc.perform(MockMvcRequestBuilders.delete("/students")
+			.contentType(APPLICATION_JSON_UTF8)
+			.content(objectMApper.writeValueAsString(List.of(1, 99))))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$.received", is(2)))
+			.andExpect(jsonPath("$.deleted", is(1)))
+			.andExpect(jsonPath("$.gradesDeleted", is(3)))
+			.andExpect(jsonPath("$.notFound", hasSize(1)))
+			.andExpect(jsonPath("$.notFound[0]", is(99)));
+		
+		// additional check
+		assertFalse(studentDao.findById(1).isPresent());
+		assertFalse(mathGradeDao.findById(1).isPresent());
+	}
+	
 	@Test
 	public void deleteStudentsHttpRequestErrorPage() throws Exception {
 		
@@ -210,6 +482,35 @@ public class GradebookControllerTest {
 			.andExpect(jsonPath("$.emailAddress", is("eric.roby@luv2code_school.com"))); //verify json element emailAddress
 	}
 	
+	@Test
+	public void studentInformationHttpRequestNotModified() throws Exception {
+		
+		String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		assertNotNull(eTag);
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""));
+	}
+	
+	@Test
+	public void studentInformationHttpRequestDeletedStudentIsNotFound() throws Exception {
+		
+		String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		mockMvc.perform(MockMvcRequestBuilders.delete("/student/{id}", 1))
+			.andExpect(status().isOk());
+		
+		// the client's tag is still the last one it saw, the student is gone all the same
+		mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotFound());
+	}
+	
 	@Test
 	public void studentInformationHttpRequestEmptyResponse() throws Exception {
 		
@@ -282,6 +583,163 @@ public class GradebookControllerTest {
 			.andExpect(jsonPath("$.message", is("Student or Grade was not found"))); // verify json root element message
 	}
 	
+	@Test
+	public void createGradesBatchHttpRequest() throws Exception {
+		
+		// as on startup, the seeded grades get their aggregates
+		studentService.rebuildSubjectStats();
+		
+		List<GradeBatchItem> grades = List.of(
+				new GradeBatchItem(1, "math", 85.00),
+				new GradeBatchItem(1, "science", 75.00),
+				new GradeBatchItem(99, "math", 85.00), // invalid student id
+				new GradeBatchItem(1, "biology", 85.00)); // invalid gradeType
+		
+		// create grades
+		mockMvc.perform(MockMvcRequestBuilders.post("/grades/batch")
+			.contentType(APPLICATION_JSON_UTF8)
+			.content(objectMApper.writeValueAsString(grades)))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$.received", is(4)))
+			.andExpect(jsonPath("$.created", is(2)))
+			.andExpect(jsonPath("$.createdByGradeType.math", is(1)))
+			.andExpect(jsonPath("$.rejected", hasSize(2)))
+			.andExpect(jsonPath("$.rejected[0]", is(2)));
+		
+		// get student information
+		mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.studentGrades.mathGradeResults", hasSize(2))) // verify there are 2 math grades
+			.andExpect(jsonPath("$.subjectStats.science.gradeCount", is(2)));
+	}
+	
+	@Test
+	public void createGradesBatchTooLargeHttpRequest() throws Exception {
+		
+		List<GradeBatchItem> grades = new ArrayList<>();
+		for (int i = 0; i <= 10_000; i++) {
+			grades.add(new GradeBatchItem(1, "math", 85.00));
+		}
+		
+		mockMvc.perform(MockMvcRequestBuilders.post("/grades/batch")
+			.contentType(APPLICATION_JSON_UTF8)
+			.content(objectMApper.writeValueAsString(grades)))
+			.andExpect(status().isPayloadTooLarge())
+			.andExpect(jsonPath("$.status", is(413)))
+			.andExpect(jsonPath("$.message", is("Batch of 10001 grades exceeds the limit of 10000")));
+		
+		// nothing of the batch was written
+		mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.studentGrades.mathGradeResults", hasSize(1)));
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED) // the import runs on another thread, test data must be committed
+	public void importGradebookHttpRequest() throws Exception {
+		
+		String csv = "firstname,lastname,emailAddress,mathGrades,scienceGrades,historyGrades\n"
+				+ "Tito,Tito,tito@babinkuk.com,90 80,70,\n"
+				+ "Toto,Toto,toto@babinkuk.com,105,,\n" // invalid grade
+				+ "Samba,Rumba,Samba.Rumba@babinkuk.com,60,,\n" // already registered
+				+ "Tito,Again,tito@babinkuk.com,50,,\n"; // repeated within the file
+		
+		MockMultipartFile file = new MockMultipartFile("file", "students.csv", "text/csv", csv.getBytes());
+		
+		// import students and grades, the request only starts the job
+		String location = mockMvc.perform(MockMvcRequestBuilders.multipart("/import").file(file))
+			.andExpect(status().isAccepted())
+			.andExpect(jsonPath("$.id").exists())
+			.andExpect(header().exists(HttpHeaders.LOCATION))
+			.andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+		
+		try {
+			JsonNode job = objectMApper.readTree(mockMvc.perform(MockMvcRequestBuilders.get(location)).andReturn().getResponse().getContentAsString());
+			for (int i = 0; i < 100 && job.get("status").asText().equals("RUNNING"); i++) {
+				Thread.sleep(100);
+				job = objectMApper.readTree(mockMvc.perform(MockMvcRequestBuilders.get(location)).andReturn().getResponse().getContentAsString());
+			}
+			
+			assertEquals("DONE", job.get("status").asText());
+			assertEquals(4, job.get("result").get("rows").asInt());
+			assertEquals(1, job.get("result").get("students").asInt());
+			assertEquals(3, job.get("result").get("grades").asInt());
+			assertEquals(3, job.get("result").get("rejected").asInt());
+			
+			// additional check
+			CollegeStudent verifyStudent = studentDao.findByEmailAddress("tito@babinkuk.com");
+			assertNotNull(verifyStudent, "Student should not be null");
+			
+			mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", verifyStudent.getId()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.studentGrades.mathGradeResults", hasSize(2)))
+				.andExpect(jsonPath("$.subjectStats.math.average", is(85.0)));
+		} finally {
+			jdbc.execute("DELETE FROM student_subject_stats");
+			rankingIndex.rebuild();
+		}
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/import/{id}", "unknown"))
+			.andExpect(status().isNotFound());
+	}
+	
+	@Test
+	public void statsHttpRequest() throws Exception {
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/stats/{gradeType}", "math"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$.gradeType", is("math")))
+			.andExpect(jsonPath("$.count", is(1)))
+			.andExpect(jsonPath("$.standardDeviation", is(0.0)))
+			.andExpect(jsonPath("$.histogram", hasSize(10)));
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/stats"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.math.count", is(1)))
+			.andExpect(jsonPath("$.science.count", is(1)))
+			.andExpect(jsonPath("$.history.count", is(1)));
+		
+		// unknown grade type
+		mockMvc.perform(MockMvcRequestBuilders.get("/stats/{gradeType}", "biology"))
+			.andExpect(status().is4xxClientError())
+			.andExpect(jsonPath("$.status", is(404)))
+			.andExpect(jsonPath("$.message", is("Grade type was not found")));
+	}
+	
+	@Test
+	public void leaderboardHttpRequest() throws Exception {
+		
+		jdbc.execute("insert into student_subject_stats(student_id, grade_type, grade_count, grade_sum, min_grade, max_grade) "
+				+ "values (1, 'math', 1, 90.00, 90.00, 90.00)");
+		rankingIndex.rebuild();
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/leaderboard/{gradeType}", "math").param("limit", "5"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$", hasSize(1)))
+			.andExpect(jsonPath("$[0].studentId", is(1)))
+			.andExpect(jsonPath("$[0].rank", is(1)));
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/leaderboard/{gradeType}/{studentId}", "math", 1))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.average", is(90.0)))
+			.andExpect(jsonPath("$.percentile", is(50.0)));
+		
+		// no science aggregate for the student, unknown grade type
+		mockMvc.perform(MockMvcRequestBuilders.get("/leaderboard/{gradeType}/{studentId}", "science", 1))
+			.andExpect(status().is4xxClientError())
+			.andExpect(jsonPath("$.message", is("Student or Grade was not found")));
+		
+		mockMvc.perform(MockMvcRequestBuilders.get("/leaderboard/{gradeType}", "biology"))
+			.andExpect(status().is4xxClientError())
+			.andExpect(jsonPath("$.message", is("Grade type was not found")));
+		
+		jdbc.execute("DELETE FROM student_subject_stats");
+		rankingIndex.rebuild();
+	}
+	
 	@Test
 	public void deleteGradeHttpRequest() throws Exception {
 		
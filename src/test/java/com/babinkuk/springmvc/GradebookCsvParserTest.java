@@ -0,0 +1,73 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.service.GradebookCsvParser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GradebookCsvParserTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void parseRowsAcrossWindows() throws Exception {
+
+		StringBuilder csv = new StringBuilder("firstname,lastname,emailAddress,mathGrades,scienceGrades,historyGrades\r\n");
+		for (int i = 0; i < 100; i++) {
+			csv.append("Student,No").append(i).append(",student").append(i).append("@babinkuk.com,90 85.5,,100\r\n");
+		}
+		csv.append("Last,Row,last.row@babinkuk.com,1.25,2,3"); // no trailing newline
+
+		Path file = tempDir.resolve("students.csv");
+		Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+		List<String> emails = new ArrayList<>();
+		GradebookCsvParser.GradeBuffer mathGrades = new GradebookCsvParser.GradeBuffer();
+		GradebookCsvParser.GradeBuffer scienceGrades = new GradebookCsvParser.GradeBuffer();
+		double[] mathSum = new double[1];
+
+		// window much smaller than the file so rows are cut at window boundaries
+		long bytes = new GradebookCsvParser(128).parse(file, row -> {
+			assertEquals(6, row.getFieldCount());
+			emails.add(row.getString(2));
+			assertTrue(row.parseGrades(3, mathGrades));
+			assertTrue(row.parseGrades(4, scienceGrades));
+			for (int i = 0; i < mathGrades.size(); i++) {
+				mathSum[0] += mathGrades.get(i);
+			}
+			if (emails.size() == 1) {
+				assertEquals(0, scienceGrades.size());
+			}
+		});
+
+		assertEquals(Files.size(file), bytes);
+		assertEquals(101, emails.size());
+		assertEquals("student0@babinkuk.com", emails.get(0));
+		assertEquals("last.row@babinkuk.com", emails.get(100));
+		assertEquals(100 * 175.5 + 1.25, mathSum[0], 1e-9);
+	}
+
+	@Test
+	public void rejectInvalidGrades() throws Exception {
+
+		Path file = tempDir.resolve("invalid.csv");
+		Files.write(file, "A,B,a.b@babinkuk.com,101,-5,abc\n".getBytes(StandardCharsets.UTF_8));
+
+		GradebookCsvParser.GradeBuffer grades = new GradebookCsvParser.GradeBuffer();
+
+		new GradebookCsvParser().parse(file, row -> {
+			assertFalse(row.parseGrades(3, grades), "grade above 100");
+			assertFalse(row.parseGrades(4, grades), "negative grade");
+			assertFalse(row.parseGrades(5, grades), "not a number");
+		});
+	}
+}
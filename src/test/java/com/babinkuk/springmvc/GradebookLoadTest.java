@@ -0,0 +1,166 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.models.GradebookImportResult;
+import com.babinkuk.springmvc.service.GradebookImportService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives a mixed read/write workload through the real controllers over HTTP and prints
+ * throughput and coordinated-omission corrected latency percentiles per operation.
+ *
+ * Tagged "load", so it is left out of the default build and runs with {@code mvn test -Pload-test}.
+ * The defaults are a short smoke run. For a real measurement raise them, e.g.
+ * {@code mvn test -Pload-test -Dload.students=10000 -Dload.rate=2000 -Dload.seconds=60}.
+ */
+@Tag("load")
+@TestPropertySource(locations = "/application-test.properties", properties = "spring.jpa.show-sql=false")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class GradebookLoadTest {
+
+	private static final int STUDENTS = Integer.getInteger("load.students", 200);
+
+	private static final int GRADES_PER_SUBJECT = Integer.getInteger("load.grades", 5);
+
+	private static final int RATE = Integer.getInteger("load.rate", 50);
+
+	private static final int SECONDS = Integer.getInteger("load.seconds", 3);
+
+	private static final long SEED = Long.getLong("load.seed", 42);
+
+	private static final String[] GRADE_TYPES = {"math", "science", "history"};
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private GradebookImportService importService;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private List<Integer> studentIds;
+
+	private final ConcurrentLinkedQueue<String> deletableGrades = new ConcurrentLinkedQueue<>();
+
+	@BeforeEach
+	public void setupDatabase() throws IOException {
+
+		Path file = Files.createTempFile("gradebook-load", ".csv");
+		try {
+			SplittableRandom random = new SplittableRandom(SEED);
+			try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+				writer.write("firstname,lastname,emailAddress,mathGrades,scienceGrades,historyGrades\n");
+				for (int i = 0; i < STUDENTS; i++) {
+					writer.write("Student,No" + i + ",student" + i + "@babinkuk.com");
+					for (int type = 0; type < GRADE_TYPES.length; type++) {
+						writer.write(',');
+						for (int g = 0; g < GRADES_PER_SUBJECT; g++) {
+							writer.write((g > 0 ? " " : "") + random.nextInt(101));
+						}
+					}
+					writer.write('\n');
+				}
+			}
+
+			GradebookImportResult result = importService.importCsv(file, null);
+			assertEquals(STUDENTS, result.getStudents());
+		} finally {
+			Files.delete(file);
+		}
+
+		studentIds = jdbc.queryForList("SELECT id FROM student", Integer.class);
+
+		// every grade is deleted at most once, later delete slots are skipped when the queue runs dry
+		for (String gradeType : GRADE_TYPES) {
+			for (Integer id : jdbc.queryForList("SELECT id FROM " + gradeType + "_grade", Integer.class)) {
+				deletableGrades.add(id + "/" + gradeType);
+			}
+		}
+	}
+
+	@Test
+	public void mixedWorkload() {
+
+		String base = "http://localhost:" + port;
+
+		LoadGenerator generator = new LoadGenerator(List.of(
+				new LoadGenerator.Operation("GET /", 10, random ->
+						get(base + "/?after=" + randomStudentId(random) + "&limit=20")),
+				new LoadGenerator.Operation("GET /studentInformation", 60, random ->
+						get(base + "/studentInformation/" + randomStudentId(random))),
+				new LoadGenerator.Operation("POST /grades", 20, random ->
+						HttpRequest.newBuilder(URI.create(base + "/grades?grade=" + random.nextInt(101)
+										+ "&gradeType=" + GRADE_TYPES[random.nextInt(GRADE_TYPES.length)]
+										+ "&studentId=" + randomStudentId(random)))
+								.header("Accept", "application/json")
+								.POST(HttpRequest.BodyPublishers.noBody())
+								.build()),
+				new LoadGenerator.Operation("DELETE /grades", 10, random -> {
+					String grade = deletableGrades.poll();
+					if (grade == null) {
+						return null;
+					}
+					return HttpRequest.newBuilder(URI.create(base + "/grades/" + grade))
+							.header("Accept", "application/json")
+							.DELETE()
+							.build();
+				})));
+
+		// warm up the JIT, connection pool and caches before measuring
+		generator.run(RATE, Duration.ofSeconds(1), SEED + 1);
+
+		LoadGenerator.LoadReport report = generator.run(RATE, Duration.ofSeconds(SECONDS), SEED);
+
+		report.print(System.out);
+
+		assertEquals(0, report.getTotal().getErrors(), "requests should not fail");
+		report.getOperations().forEach((name, stats) -> assertTrue(stats.getCount() > 0, name + " should have run"));
+	}
+
+	private int randomStudentId(SplittableRandom random) {
+		return studentIds.get(random.nextInt(studentIds.size()));
+	}
+
+	private HttpRequest get(String uri) {
+		return HttpRequest.newBuilder(URI.create(uri))
+				.header("Accept", "application/json")
+				.GET()
+				.build();
+	}
+
+	@AfterEach
+	public void setupAfterTransaction() {
+		jdbc.execute("DELETE FROM student");
+		jdbc.execute("DELETE FROM math_grade");
+		jdbc.execute("DELETE FROM science_grade");
+		jdbc.execute("DELETE FROM history_grade");
+		jdbc.execute("DELETE FROM student_subject_stats");
+		cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE).clear();
+	}
+}
@@ -0,0 +1,106 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.service.StudentAndGradeService;
+import com.babinkuk.springmvc.service.StudentAndGradeServiceMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@TestPropertySource(locations = "/application-test.properties", properties = "spring.jpa.show-sql=false")
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class GradebookMetricsTest {
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private StudentAndGradeService studentService;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Value("${sql.script.create.student}")
+	private String sqlAddStudent;
+
+	@Value("${sql.script.create.math.grade}")
+	private String sqlAddMathGrade;
+
+	@BeforeEach
+	public void setupDatabase() {
+		jdbc.execute(sqlAddStudent);
+		jdbc.execute(sqlAddMathGrade);
+	}
+
+	@Test
+	public void serviceCallsAreTimedByGradeType() {
+
+		assertTrue(studentService.createGrade(80.00, 1, "math"));
+		assertTrue(studentService.createGrade(70.00, 1, "science"));
+		assertFalse(studentService.createGrade(70.00, 1, "literature"));
+		assertNotNull(studentService.studentInformation(1));
+
+		assertEquals(1, timer("createGrade", "math").count());
+		assertEquals(1, timer("createGrade", "science").count());
+		assertEquals(1, timer("createGrade", "other").count());
+		assertEquals(1, timer("studentInformation", "none").count());
+	}
+
+	@Test
+	public void prometheusEndpointExposesHistograms() throws Exception {
+
+		studentService.createGrade(80.00, 1, "math");
+		studentService.studentInformation(1);
+
+		mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString(
+						"gradebook_service_seconds_bucket{exception=\"none\",gradeType=\"math\",method=\"createGrade\"")))
+				.andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket")))
+				.andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket")))
+				.andExpect(content().string(containsString("cache_gets_total{cache=\"studentInformation\"")));
+	}
+
+	private Timer timer(String method, String gradeType) {
+		return registry.get(StudentAndGradeServiceMetrics.METRIC_NAME)
+				.tag("method", method)
+				.tag("gradeType", gradeType)
+				.timer();
+	}
+
+	@AfterEach
+	public void setupAfterTransaction() {
+		jdbc.execute("DELETE FROM student");
+		jdbc.execute("DELETE FROM math_grade");
+		jdbc.execute("DELETE FROM science_grade");
+		jdbc.execute("DELETE FROM history_grade");
+		jdbc.execute("DELETE FROM student_subject_stats");
+		cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE).clear();
+		registry.find(StudentAndGradeServiceMetrics.METRIC_NAME).meters().forEach(registry::remove);
+	}
+}
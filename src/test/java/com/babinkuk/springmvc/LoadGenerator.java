@@ -0,0 +1,215 @@
+package com.babinkuk.springmvc;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator.
+ *
+ * Requests go out on a fixed schedule at the target rate, whether or not earlier requests have come back.
+ * Every latency is recorded twice: from the moment the request was actually sent, and from the moment
+ * it was scheduled to be sent. The second one is corrected for coordinated omission, a stalled server
+ * is charged for every request that queued up behind the stall instead of only for the one it stalled on.
+ */
+public class LoadGenerator {
+
+	// one hour in microseconds, 3 significant digits
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+	public interface RequestFactory {
+		// null skips this slot, e.g. when there is nothing left to delete
+		HttpRequest next(SplittableRandom random);
+	}
+
+	public static class Operation {
+
+		private final String name;
+
+		private final int weight;
+
+		private final RequestFactory requestFactory;
+
+		public Operation(String name, int weight, RequestFactory requestFactory) {
+			this.name = name;
+			this.weight = weight;
+			this.requestFactory = requestFactory;
+		}
+	}
+
+	public static class OperationStats {
+
+		private final Histogram corrected = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+		private final Histogram uncorrected = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+		private final AtomicLong errors = new AtomicLong();
+
+		private final AtomicLong skipped = new AtomicLong();
+
+		public Histogram getCorrected() {
+			return corrected;
+		}
+
+		public Histogram getUncorrected() {
+			return uncorrected;
+		}
+
+		public long getCount() {
+			return corrected.getTotalCount();
+		}
+
+		public long getErrors() {
+			return errors.get();
+		}
+
+		public long getSkipped() {
+			return skipped.get();
+		}
+	}
+
+	public static class LoadReport {
+
+		private final Map<String, OperationStats> operations = new LinkedHashMap<>();
+
+		private final OperationStats total = new OperationStats();
+
+		private long elapsedNanos;
+
+		private int targetRate;
+
+		public Map<String, OperationStats> getOperations() {
+			return operations;
+		}
+
+		public OperationStats getTotal() {
+			return total;
+		}
+
+		public double getThroughput() {
+			return total.getCount() / (elapsedNanos / 1e9);
+		}
+
+		public void print(PrintStream out) {
+			out.printf("target %d req/s, achieved %.0f req/s over %.1f s%n", targetRate, getThroughput(), elapsedNanos / 1e9);
+			out.printf("%-22s %8s %6s %7s | %28s | %28s%n", "operation", "count", "errors", "skipped",
+					"corrected p50/p99/p999 ms", "uncorrected p50/p99/p999 ms");
+			for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+				printRow(out, entry.getKey(), entry.getValue());
+			}
+			printRow(out, "total", total);
+		}
+
+		private void printRow(PrintStream out, String name, OperationStats stats) {
+			out.printf("%-22s %8d %6d %7d | %28s | %28s%n", name, stats.getCount(), stats.getErrors(), stats.getSkipped(),
+					percentiles(stats.getCorrected()), percentiles(stats.getUncorrected()));
+		}
+
+		private String percentiles(Histogram histogram) {
+			return String.format("%8.2f %8.2f %8.2f",
+					histogram.getValueAtPercentile(50) / 1000.0,
+					histogram.getValueAtPercentile(99) / 1000.0,
+					histogram.getValueAtPercentile(99.9) / 1000.0);
+		}
+	}
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+
+	private final List<Operation> operations;
+
+	private final int totalWeight;
+
+	public LoadGenerator(List<Operation> operations) {
+		this.operations = new ArrayList<>(operations);
+		int weight = 0;
+		for (Operation operation : operations) {
+			weight += operation.weight;
+		}
+		this.totalWeight = weight;
+	}
+
+	/**
+	 * Sends {@code requestsPerSecond} requests per second for {@code duration} and waits for the last response.
+	 */
+	public LoadReport run(int requestsPerSecond, Duration duration, long seed) {
+
+		LoadReport report = new LoadReport();
+		report.targetRate = requestsPerSecond;
+		for (Operation operation : operations) {
+			report.operations.put(operation.name, new OperationStats());
+		}
+
+		SplittableRandom random = new SplittableRandom(seed);
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+		long numberOfRequests = duration.toNanos() / intervalNanos;
+		List<CompletableFuture<?>> inFlight = new ArrayList<>();
+
+		long start = System.nanoTime();
+
+		for (long i = 0; i < numberOfRequests; i++) {
+			long intendedStart = start + i * intervalNanos;
+			long wait = intendedStart - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+
+			Operation operation = pick(random);
+			OperationStats stats = report.operations.get(operation.name);
+			HttpRequest request = operation.requestFactory.next(random);
+
+			if (request == null) {
+				stats.skipped.incrementAndGet();
+				continue;
+			}
+
+			long actualStart = System.nanoTime();
+
+			inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+					.handle((response, exc) -> {
+						long end = System.nanoTime();
+						boolean failed = exc != null || response.statusCode() >= 400;
+						for (OperationStats target : new OperationStats[] {stats, report.total}) {
+							target.corrected.recordValue(TimeUnit.NANOSECONDS.toMicros(end - intendedStart));
+							target.uncorrected.recordValue(TimeUnit.NANOSECONDS.toMicros(end - actualStart));
+							if (failed) {
+								target.errors.incrementAndGet();
+							}
+						}
+						return null;
+					}));
+		}
+
+		CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+		report.elapsedNanos = System.nanoTime() - start;
+
+		return report;
+	}
+
+	private Operation pick(SplittableRandom random) {
+		int ticket = random.nextInt(totalWeight);
+		for (Operation operation : operations) {
+			ticket -= operation.weight;
+			if (ticket < 0) {
+				return operation;
+			}
+		}
+		return operations.get(operations.size() - 1);
+	}
+}
@@ -0,0 +1,52 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.service.ScalableBloomFilter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalableBloomFilterTest {
+
+	@Test
+	public void noFalseNegativesAndBoundedFalsePositivesWhileGrowing() {
+
+		int numberOfEmails = 200_000;
+		// starts at a tenth of what gets added, so the filter has to grow a few stages
+		ScalableBloomFilter filter = new ScalableBloomFilter(numberOfEmails / 10, 0.01, Long.MAX_VALUE);
+
+		for (int i = 0; i < numberOfEmails; i++) {
+			filter.add("student" + i + "@babinkuk.com");
+		}
+
+		for (int i = 0; i < numberOfEmails; i++) {
+			assertTrue(filter.mightContain("student" + i + "@babinkuk.com"), "added addresses are always found");
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < numberOfEmails; i++) {
+			if (filter.mightContain("applicant" + i + "@babinkuk.com")) {
+				falsePositives++;
+			}
+		}
+		double falsePositiveRate = (double) falsePositives / numberOfEmails;
+
+		assertTrue(filter.getStageCount() > 1);
+		assertTrue(falsePositiveRate <= 0.01, "false-positive rate " + falsePositiveRate);
+	}
+
+	@Test
+	public void stopsGrowingAtMaxBytes() {
+
+		ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01, 4 * 1024);
+
+		for (int i = 0; i < 50_000; i++) {
+			filter.add("student" + i + "@babinkuk.com");
+		}
+
+		assertTrue(filter.getBytes() <= 4 * 1024, "filter uses " + filter.getBytes() + " bytes");
+		for (int i = 0; i < 50_000; i++) {
+			assertTrue(filter.mightContain("student" + i + "@babinkuk.com"), "no false negatives once full either");
+		}
+	}
+}
@@ -1,25 +1,54 @@
 package com.babinkuk.springmvc;
 
+import com.babinkuk.springmvc.exceptionhandling.StudentAlreadyExistsException;
 import com.babinkuk.springmvc.models.*;
 import com.babinkuk.springmvc.repository.HistoryGradesDao;
 import com.babinkuk.springmvc.repository.MathGradesDao;
 import com.babinkuk.springmvc.repository.ScienceGradesDao;
 import com.babinkuk.springmvc.repository.StudentDao;
+import com.babinkuk.springmvc.repository.StudentSubjectStatsDao;
+import com.babinkuk.springmvc.service.RegisteredEmails;
 import com.babinkuk.springmvc.service.StudentAndGradeService;
+import com.babinkuk.springmvc.service.StudentRankingIndex;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.context.jdbc.SqlGroup;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -42,9 +71,27 @@ public class StudentAndGradeServiceTest {
     @Autowired
     private HistoryGradesDao historyGradeDao;
 
+    @Autowired
+    private StudentSubjectStatsDao subjectStatsDao;
+
     @Autowired
     private StudentAndGradeService studentService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private StudentRankingIndex rankingIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RegisteredEmails registeredEmails;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Value("${sql.script.create.student}")
     private String sqlAddStudent;
 
@@ -123,6 +170,132 @@ public class StudentAndGradeServiceTest {
         assertFalse(deletedHistoryGrade.isPresent(), "return false");
     }
 
+    @Test
+    public void deleteStudentsInBulk() {
+
+        int numberOfStudents = 20;
+        int gradesPerSubject = 10;
+        int ranked = studentService.getLeaderboard("math", 100).size();
+
+        List<Integer> ids = new ArrayList<>();
+        List<GradeBatchItem> grades = new ArrayList<>();
+        for (int i = 0; i < numberOfStudents; i++) {
+            int id = studentService.createStudent("Student", "No" + i, "student" + i + "@babinkuk.com").getId();
+            ids.add(id);
+            for (int g = 0; g < gradesPerSubject; g++) {
+                grades.add(new GradeBatchItem(id, "math", 50 + g));
+                grades.add(new GradeBatchItem(id, "science", 60 + g));
+                grades.add(new GradeBatchItem(id, "history", 70 + g));
+            }
+        }
+        studentService.createGrades(grades);
+        assertEquals(ranked + numberOfStudents, studentService.getLeaderboard("math", 100).size());
+
+        List<Integer> request = new ArrayList<>(ids);
+        request.add(99);
+        request.add(ids.get(0));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        StudentDeleteSummary summary = studentService.deleteStudents(request);
+
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(numberOfStudents + 2, summary.getReceived());
+        assertEquals(numberOfStudents, summary.getDeleted());
+        assertEquals(numberOfStudents * gradesPerSubject * 3, summary.getGradesDeleted());
+        assertEquals(List.of(99), summary.getNotFound());
+
+        // one select and five bulk deletes instead of one delete per grade
+        assertEquals(6, statements, "prepared statements");
+
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM student", Integer.class));
+        assertEquals(3, jdbc.queryForObject("SELECT (SELECT COUNT(*) FROM math_grade) + (SELECT COUNT(*) FROM science_grade) "
+                + "+ (SELECT COUNT(*) FROM history_grade)", Integer.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM student_subject_stats WHERE student_id <> 1", Integer.class));
+        assertNull(studentService.findStudentIdByEmail("student0@babinkuk.com"));
+        assertEquals(ranked, studentService.getLeaderboard("math", 100).size(), "deleted students leave the leaderboard");
+    }
+
+    @Test
+    public void createGradesUpdatesAggregatesInBulk() {
+
+        int numberOfStudents = 50;
+
+        List<Integer> ids = new ArrayList<>();
+        List<GradeBatchItem> grades = new ArrayList<>();
+        for (int i = 0; i < numberOfStudents; i++) {
+            int id = studentService.createStudent("Student", "No" + i, "student" + i + "@babinkuk.com").getId();
+            ids.add(id);
+            grades.add(new GradeBatchItem(id, "math", 50));
+            grades.add(new GradeBatchItem(id, "science", 60));
+        }
+        studentService.createGrades(grades);
+
+        // every student has math and science aggregates now, history ones only come from the batch below
+        grades.clear();
+        for (int id : ids) {
+            grades.add(new GradeBatchItem(id, "math", 70));
+            grades.add(new GradeBatchItem(id, "science", 80));
+        }
+        grades.add(new GradeBatchItem(ids.get(0), "history", 90));
+        grades.add(new GradeBatchItem(ids.get(0), "history", 80));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        studentService.createGrades(grades);
+
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        // no select and update per student and subject
+        assertTrue(statements < numberOfStudents, statements + " prepared statements");
+
+        GradebookCollegeStudent first = studentService.studentInformation(ids.get(0));
+        assertEquals(60.0, first.getSubjectStats().get("math").getAverage());
+        assertEquals(2, first.getSubjectStats().get("science").getGradeCount());
+        // a new aggregate is built from the batch's grades alone
+        StudentSubjectStats history = first.getSubjectStats().get("history");
+        assertEquals(2, history.getGradeCount());
+        assertEquals(85.0, history.getAverage());
+        assertEquals(80.0, history.getMinGrade());
+        assertEquals(90.0, history.getMaxGrade());
+
+        GradebookCollegeStudent last = studentService.studentInformation(ids.get(numberOfStudents - 1));
+        assertEquals(70.0, last.getSubjectStats().get("science").getAverage());
+        assertNull(last.getSubjectStats().get("history"));
+    }
+
+    @Test
+    public void deleteStudentsCommitsEveryChunk() {
+
+        // the seeded student fills the second chunk
+        List<Integer> request = new ArrayList<>();
+        for (int i = 0; i < StudentAndGradeService.DELETE_CHUNK_SIZE; i++) {
+            request.add(100_000 + i);
+        }
+        request.add(1);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        StudentDeleteSummary summary = studentService.deleteStudents(request);
+
+        long transactions = statistics.getSuccessfulTransactionCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(1, summary.getDeleted());
+        assertEquals(3, summary.getGradesDeleted());
+        assertEquals(StudentAndGradeService.DELETE_CHUNK_SIZE, summary.getNotFound().size());
+        assertEquals(2, transactions, "one transaction per chunk");
+    }
+
 
     @Test
     public void studentInformationService() {
@@ -143,6 +316,45 @@ public class StudentAndGradeServiceTest {
 
     }
 
+    @Test
+    public void studentInformationServiceSingleQuery() {
+
+        studentService.createGrade(80.50, 1, "math");
+
+        List<StudentGradeRow> rows = studentDao.findStudentWithGradesAndStatsById(1);
+
+        assertEquals(5, rows.size(), "one row per grade and one for the math aggregate");
+
+        GradebookCollegeStudent gradebookCollegeStudentTest = studentService.studentInformation(1);
+
+        assertEquals(2, gradebookCollegeStudentTest.getStudentGrades().getMathGradeResults().size());
+        assertEquals(1, gradebookCollegeStudentTest.getStudentGrades().getScienceGradeResults().size());
+        assertEquals(1, gradebookCollegeStudentTest.getStudentGrades().getHistoryGradeResults().size());
+        assertEquals(1, gradebookCollegeStudentTest.getStudentGrades().getMathGradeResults().get(0).getStudentId());
+
+        StudentSubjectStats mathStats = gradebookCollegeStudentTest.getSubjectStats().get("math");
+        assertEquals(2, mathStats.getGradeCount());
+        assertEquals(170.50, mathStats.getGradeSum());
+        assertEquals(80.50, mathStats.getMinGrade());
+        assertEquals(90.00, mathStats.getMaxGrade());
+    }
+
+    @Test
+    public void studentInformationServiceNoGradesOrStudent() {
+
+        studentService.deleteGrade(1, "math");
+        studentService.deleteGrade(1, "science");
+        studentService.deleteGrade(1, "history");
+
+        GradebookCollegeStudent gradebookCollegeStudentTest = studentService.studentInformation(1);
+
+        assertNotNull(gradebookCollegeStudentTest, "student without grades is still found");
+        assertTrue(gradebookCollegeStudentTest.getStudentGrades().getMathGradeResults().isEmpty());
+
+        assertTrue(studentDao.findStudentWithGradesAndStatsById(99).isEmpty());
+        assertNull(studentService.studentInformation(99), "No student with id 99 : return null");
+    }
+
     @Test
     public void isGradeNullCheck() {
 
@@ -204,6 +416,398 @@ public class StudentAndGradeServiceTest {
 
     }
 
+    @Test
+    public void subjectStatsMaintainedOnCreateAndDeleteGrade() {
+
+        studentService.createGrade(80.00, 1, "math");
+        studentService.createGrade(70.00, 1, "math");
+
+        StudentSubjectStats stats = subjectStatsDao.findById(new StudentSubjectStatsId(1, "math")).get();
+
+        assertEquals(3, stats.getGradeCount());
+        assertEquals(240.00, stats.getGradeSum());
+        assertEquals(70.00, stats.getMinGrade());
+        assertEquals(90.00, stats.getMaxGrade());
+        assertEquals(80.00, stats.getAverage());
+
+        // removing the minimum forces a recompute from the grade table
+        MathGrade lowest = null;
+        for (MathGrade grade : mathGradeDao.findGradeByStudentId(1)) {
+            if (grade.getGrade() == 70.00) {
+                lowest = grade;
+            }
+        }
+        studentService.deleteGrade(lowest.getId(), "math");
+
+        stats = subjectStatsDao.findById(new StudentSubjectStatsId(1, "math")).get();
+
+        assertEquals(2, stats.getGradeCount());
+        assertEquals(80.00, stats.getMinGrade());
+        assertEquals(85.00, stats.getAverage());
+
+        GradebookCollegeStudent student = studentService.studentInformation(1);
+        assertEquals(85.00, student.getSubjectStats().get("math").getAverage());
+    }
+
+    @Test
+    public void subjectStatisticsAggregatedInDatabase() {
+
+        studentService.createGrade(80.00, 1, "math");
+        studentService.createGrade(100.00, 1, "math");
+        studentService.createGrade(5.50, 1, "math");
+
+        SubjectStatistics math = studentService.getSubjectStatistics("math");
+
+        assertEquals(4, math.getCount());
+        assertEquals(68.88, math.getMean());
+        assertEquals(5.50, math.getMin());
+        assertEquals(100.00, math.getMax());
+        assertEquals(37.27, math.getStandardDeviation());
+        assertArrayEquals(new long[] {1, 0, 0, 0, 0, 0, 0, 0, 1, 2}, math.getHistogram(), "100 counts in the top bucket");
+
+        jdbc.execute(sqlDeleteScienceGrade);
+
+        Map<String, SubjectStatistics> statistics = studentService.getClassStatistics();
+
+        assertEquals(List.of("math", "science", "history"), List.copyOf(statistics.keySet()));
+        assertEquals(0, statistics.get("science").getCount());
+        assertNull(statistics.get("science").getMean());
+        assertEquals(0.00, statistics.get("history").getStandardDeviation());
+
+        assertNull(studentService.getSubjectStatistics("biology"));
+    }
+
+    @Test
+    public void leaderboardAndRankFollowWrites() {
+
+        studentService.rebuildSubjectStats();
+        for (int id = 2; id <= 4; id++) {
+            jdbc.execute("insert into student(id, firstname, lastname, email_address) values (" + id + ", 'Student', 'No" + id + "', 'student" + id + "@babinkuk.com')");
+        }
+        studentService.createGrade(70.00, 2, "math");
+        studentService.createGrade(90.00, 3, "math");
+        studentService.createGrade(50.00, 4, "math");
+
+        List<StudentRank> leaderboard = studentService.getLeaderboard("math", 10);
+
+        assertEquals(List.of(1, 3, 2, 4), leaderboard.stream().map(StudentRank::getStudentId).collect(Collectors.toList()));
+        assertEquals(List.of(1, 1, 3, 4), leaderboard.stream().map(StudentRank::getRank).collect(Collectors.toList()), "ties share a rank");
+        assertEquals(2, studentService.getLeaderboard("math", 2).size());
+
+        StudentRank rank = studentService.getStudentRank(2, "math");
+        assertEquals(70.00, rank.getAverage());
+        assertEquals(3, rank.getRank());
+        assertEquals(37.50, rank.getPercentile());
+        assertEquals(4, rank.getRankedStudents());
+
+        MathGrade grade = mathGradeDao.findGradeByStudentId(3).iterator().next();
+        studentService.deleteGrade(grade.getId(), "math");
+        assertNull(studentService.getStudentRank(3, "math"), "no grades left in the subject");
+
+        studentService.deleteStudent(1);
+        assertEquals(List.of(2, 4), studentService.getLeaderboard("math", 10).stream().map(StudentRank::getStudentId).collect(Collectors.toList()));
+        assertEquals(1, studentService.getStudentRank(2, "math").getRank());
+
+        assertNull(studentService.getLeaderboard("biology", 10));
+        assertNull(studentService.getStudentRank(2, "biology"));
+    }
+
+    @Test
+    public void rankingIndexMatchesSortedReference() {
+
+        int numberOfStudents = 2_000;
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>();
+        for (int id = 1; id <= numberOfStudents; id++) {
+            // few distinct averages so there are plenty of ties
+            rows.add(new Object[] {id, "science", 4, (random.nextInt(40) + 60) * 4.0, 0.0, 100.0});
+        }
+        jdbc.batchUpdate("insert into student_subject_stats(student_id, grade_type, grade_count, grade_sum, min_grade, max_grade) "
+                + "values (?, ?, ?, ?, ?, ?)", rows);
+        rankingIndex.rebuild();
+
+        List<Object[]> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingDouble((Object[] row) -> -(Double) row[3]).thenComparingInt(row -> (Integer) row[0]));
+
+        List<StudentRank> leaderboard = studentService.getLeaderboard("science", 100);
+        for (int i = 0; i < leaderboard.size(); i++) {
+            assertEquals(sorted.get(i)[0], leaderboard.get(i).getStudentId());
+        }
+
+        for (Object[] row : rows) {
+            double sum = (Double) row[3];
+            long above = rows.stream().filter(other -> (Double) other[3] > sum).count();
+            long below = rows.stream().filter(other -> (Double) other[3] < sum).count();
+            StudentRank rank = studentService.getStudentRank((Integer) row[0], "science");
+
+            assertEquals(above + 1, rank.getRank());
+            assertEquals(Math.round((below + (numberOfStudents - above - below) / 2.0) * 10_000.0 / numberOfStudents) / 100.0,
+                    rank.getPercentile(), 0.005);
+        }
+
+        jdbc.execute("DELETE FROM student_subject_stats");
+        rankingIndex.rebuild();
+        assertTrue(studentService.getLeaderboard("science", 10).isEmpty());
+    }
+
+    @Test
+    public void rankingIndexKeepsTheLaterWriteWhenCallbacksRunOutOfOrder() {
+
+        TransactionTemplate first = new TransactionTemplate(transactionManager);
+        TransactionTemplate second = new TransactionTemplate(transactionManager);
+        second.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // the first writer draws its sequence number, the second writes after it but commits first
+        first.executeWithoutResult(status -> {
+            rankingIndex.subjectChanged(1, "math", subjectStats(1, "math", 70.00));
+            second.executeWithoutResult(inner -> rankingIndex.subjectChanged(1, "math", subjectStats(1, "math", 90.00)));
+            assertEquals(90.00, studentService.getStudentRank(1, "math").getAverage());
+        });
+
+        assertEquals(90.00, studentService.getStudentRank(1, "math").getAverage(), "the older update is ignored");
+
+        rankingIndex.subjectChanged(1, "math", null);
+        assertNull(studentService.getStudentRank(1, "math"));
+    }
+
+    private StudentSubjectStats subjectStats(int studentId, String gradeType, double grade) {
+        StudentSubjectStats stats = new StudentSubjectStats(studentId, gradeType);
+        stats.addGrade(grade);
+        return stats;
+    }
+
+    @Test
+    public void studentIdByEmailIsCachedAndEvictedOnDelete() {
+
+        Cache emailCache = cacheManager.getCache(MvcTestingExampleApplication.STUDENT_ID_BY_EMAIL_CACHE);
+
+        assertEquals(1, studentService.findStudentIdByEmail("samba.rumba@babinkuk.com"));
+        Cache.ValueWrapper cached = emailCache.get("samba.rumba@babinkuk.com");
+        assertNotNull(cached, "hit is cached");
+        assertEquals(1, studentService.findStudentIdByEmail(" Samba.Rumba@babinkuk.com "), "keys are normalized");
+
+        assertNull(studentService.findStudentIdByEmail("nobody@babinkuk.com"));
+        assertNull(emailCache.get("nobody@babinkuk.com"), "misses are not cached");
+
+        studentService.deleteStudent(1);
+
+        assertNull(emailCache.get("samba.rumba@babinkuk.com"), "evicted with the student");
+        assertNull(studentService.findStudentIdByEmail("samba.rumba@babinkuk.com"));
+
+        // a lookup that started before the delete puts its result after the delete's eviction
+        emailCache.put("samba.rumba@babinkuk.com", cached.get());
+        assertNull(studentService.findStudentIdByEmail("samba.rumba@babinkuk.com"), "the deleted id is never served");
+    }
+
+    @Test
+    public void streamGradebookKeepsPersistenceContextSmall() {
+
+        List<Object[]> students = new ArrayList<>();
+        List<Object[]> grades = new ArrayList<>();
+        for (int id = 2; id <= 1200; id++) {
+            students.add(new Object[] {id, "Student", "No" + id, "student" + id + "@babinkuk.com"});
+            grades.add(new Object[] {id, id, 75.00});
+        }
+        jdbc.batchUpdate("insert into student(id, firstname, lastname, email_address) values (?, ?, ?, ?)", students);
+        jdbc.batchUpdate("insert into math_grade(id, student_id, grade) values (?, ?, ?)", grades);
+
+        // what open-in-view does for the thread that writes a streaming response
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+
+        List<Integer> pageSizes = new ArrayList<>();
+        List<Integer> managedEntities = new ArrayList<>();
+        try {
+            studentService.streamGradebook(page -> {
+                pageSizes.add(page.size());
+                managedEntities.add(entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+            });
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+
+        assertEquals(List.of(500, 500, 200), pageSizes);
+        assertEquals(List.of(0, 0, 0), managedEntities, "pages must not pile up in the persistence context");
+    }
+
+    @Test
+    public void emailAddressIsStoredNormalized() {
+
+        CollegeStudent student = studentService.createStudent("Eric", "Roby", " Eric.Roby@Babinkuk.com");
+
+        assertEquals("eric.roby@babinkuk.com", student.getEmailAddress());
+        assertEquals(student.getId(), studentService.findStudentIdByEmail("ERIC.ROBY@babinkuk.com"));
+        assertThrows(StudentAlreadyExistsException.class,
+                () -> studentService.createStudent("Eric", "Other", "eric.roby@babinkuk.com"));
+    }
+
+    @Test
+    public void duplicateEmailIsRejected() {
+
+        studentService.createStudent("Tito", "Babin", "tito@babinkuk.com");
+
+        assertTrue(registeredEmails.getFilter().mightContain("tito@babinkuk.com"), "created addresses go into the filter");
+        assertThrows(StudentAlreadyExistsException.class,
+                () -> studentService.createStudent("Tito", "Other", " TITO@babinkuk.com"));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM student WHERE email_address = 'tito@babinkuk.com'", Integer.class));
+
+        // written behind the service's back, so the filter clears it and the unique index has to catch the duplicate
+        jdbc.execute("insert into student(id, firstname, lastname, email_address) values (2, 'Toto', 'Babin', 'toto@babinkuk.com')");
+        assertFalse(registeredEmails.getFilter().mightContain("toto@babinkuk.com"));
+        StudentAlreadyExistsException exc = assertThrows(StudentAlreadyExistsException.class,
+                () -> studentService.createStudent("Toto", "Other", "toto@babinkuk.com"));
+        assertNotNull(exc.getCause(), "raised from the unique index violation");
+    }
+
+    @Test
+    public void studentInformationIsCachedAndEvictedOnWrite() {
+
+        GradebookCollegeStudent student = studentService.studentInformation(1);
+        CacheStats before = studentInformationCacheStats();
+
+        GradebookCollegeStudent cached = studentService.studentInformation(1);
+        assertEquals(before.hitCount() + 1, studentInformationCacheStats().hitCount(), "second read comes from the cache");
+        assertNotSame(student, cached, "readers get their own copy");
+        assertEquals(student.getStudentGrades().getMathGradeResults(), cached.getStudentGrades().getMathGradeResults());
+
+        // what a caller does to its copy does not reach the cache
+        cached.setFirstname("Changed");
+        cached.getSubjectStats().put("math", new StudentSubjectStats(1, "math"));
+        assertEquals("Samba", studentService.studentInformation(1).getFirstname());
+        assertEquals(student.getSubjectStats().keySet(), studentService.studentInformation(1).getSubjectStats().keySet());
+
+        studentService.createGrade(70.00, 1, "math");
+
+        GradebookCollegeStudent afterCreate = studentService.studentInformation(1);
+        assertNotSame(student, afterCreate);
+        assertEquals(2, afterCreate.getStudentGrades().getMathGradeResults().size());
+        assertEquals(80.00, afterCreate.getSubjectStats().get("math").getAverage());
+
+        studentService.deleteGrade(afterCreate.getStudentGrades().getMathGradeResults().get(0).getId(), "math");
+        assertEquals(1, studentService.studentInformation(1).getStudentGrades().getMathGradeResults().size());
+
+        studentService.deleteStudent(1);
+        assertNull(studentService.studentInformation(1));
+    }
+
+    @Test
+    public void studentInformationLoadedBeforeAWriteIsNotServedAfterIt() {
+
+        Cache cache = cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE);
+
+        // a reader reads the revision and the old state, then a write commits and evicts
+        long revision = studentDao.findRevisionById(1);
+        StudentInformationSnapshot stale = StudentInformationSnapshot.of(revision, studentService.studentInformation(1));
+        studentService.createGrade(70.00, 1, "math");
+
+        // the reader's deferred put lands after the eviction
+        cache.put(1, stale);
+
+        assertEquals(2, studentService.studentInformation(1).getStudentGrades().getMathGradeResults().size());
+        assertEquals(2, studentService.studentInformation(1).getStudentGrades().getMathGradeResults().size(), "and from the cache");
+    }
+
+    @Test
+    public void concurrentStudentInformationReadsDoNotShareGrades() throws Exception {
+
+        jdbc.execute("insert into student(id, firstname, lastname, email_address) values (2, 'Tito', 'Babin', 'tito@babinkuk.com')");
+        jdbc.execute("insert into math_grade(id, student_id, grade) values (2, 2, 60.00)");
+        jdbc.execute("insert into math_grade(id, student_id, grade) values (3, 2, 70.00)");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<GradebookCollegeStudent>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                int studentId = i % 2 + 1;
+                results.add(executor.submit(() -> {
+                    // bypass the cache so every call builds its own snapshot
+                    cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE).evict(studentId);
+                    return studentService.studentInformation(studentId);
+                }));
+            }
+
+            for (Future<GradebookCollegeStudent> result : results) {
+                GradebookCollegeStudent student = result.get(30, TimeUnit.SECONDS);
+                for (GradeSnapshot grade : student.getStudentGrades().getMathGradeResults()) {
+                    assertEquals(student.getId(), grade.getStudentId());
+                }
+                assertEquals(student.getId(), student.getStudentGrades().getMathGradeResults().size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CacheStats studentInformationCacheStats() {
+        return ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cacheManager
+                .getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE).getNativeCache()).stats();
+    }
+
+    @Test
+    public void eTagsMoveAfterWrites() {
+
+        jdbc.execute("insert into student(id, firstname, lastname, email_address) values (2, 'Tito', 'Babin', 'tito@babinkuk.com')");
+
+        String gradebookETag = studentService.gradebookPageETag(0, 1);
+        String nextPageETag = studentService.gradebookPageETag(1, 1);
+        String studentETag = studentService.studentETag(1);
+        String otherStudentETag = studentService.studentETag(2);
+
+        studentService.createGrade(70.00, 1, "math");
+
+        assertNotEquals(gradebookETag, studentService.gradebookPageETag(0, 1));
+        assertEquals(nextPageETag, studentService.gradebookPageETag(1, 1), "other pages keep their tag");
+        assertNotEquals(studentETag, studentService.studentETag(1));
+        assertEquals(otherStudentETag, studentService.studentETag(2), "other students keep their tag");
+
+        // student 1 has science and history grades without aggregates, the rebuild adds them
+        studentETag = studentService.studentETag(1);
+        studentService.rebuildSubjectStats();
+
+        assertNotEquals(studentETag, studentService.studentETag(1));
+        assertEquals(otherStudentETag, studentService.studentETag(2), "unchanged aggregates keep their tag");
+
+        studentETag = studentService.studentETag(1);
+        studentService.rebuildSubjectStats();
+
+        assertEquals(studentETag, studentService.studentETag(1), "a rebuild of consistent aggregates changes nothing");
+
+        studentService.deleteStudent(2);
+
+        assertNull(studentService.studentETag(2));
+        assertNotEquals(nextPageETag, studentService.gradebookPageETag(1, 1));
+    }
+
+    @Test
+    public void writesFromAnotherNodeAreSeen() {
+
+        String studentETag = studentService.studentETag(1);
+        assertEquals(1, studentService.studentInformation(1).getStudentGrades().getMathGradeResults().size());
+
+        // another node writes a grade: nothing is evicted here, only the persisted revision moves
+        jdbc.execute("insert into math_grade(id, student_id, grade) values (2, 1, 70.00)");
+        jdbc.execute("update student set revision = revision + 1 where id = 1");
+
+        assertNotEquals(studentETag, studentService.studentETag(1));
+        assertEquals(2, studentService.studentInformation(1).getStudentGrades().getMathGradeResults().size());
+    }
+
+    @Test
+    public void rebuildSubjectStatsService() {
+
+        studentService.rebuildSubjectStats();
+
+        StudentSubjectStats stats = subjectStatsDao.findById(new StudentSubjectStatsId(1, "history")).get();
+        assertEquals(1, stats.getGradeCount());
+        assertEquals(90.00, stats.getAverage());
+
+        studentService.deleteStudent(1);
+
+        assertFalse(subjectStatsDao.findByStudentId(1).iterator().hasNext(), "stats are deleted with the student");
+    }
+
     @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
             @Sql("/overrideData.sql"),
             @Sql("/insertGrade.sql")})
@@ -233,5 +837,8 @@ public class StudentAndGradeServiceTest {
         jdbc.execute(sqlDeleteMathGrade);
         jdbc.execute(sqlDeleteScienceGrade);
         jdbc.execute(sqlDeleteHistoryGrade);
+        jdbc.execute("DELETE FROM student_subject_stats");
+        cacheManager.getCache(MvcTestingExampleApplication.STUDENT_INFORMATION_CACHE).clear();
+        cacheManager.getCache(MvcTestingExampleApplication.STUDENT_ID_BY_EMAIL_CACHE).clear();
     }
 }
@@ -0,0 +1,209 @@
+package com.babinkuk.springmvc;
+
+import com.babinkuk.springmvc.models.GradebookCollegeStudent;
+import com.babinkuk.springmvc.service.StudentInformationLoader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.sql.DataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the studentInformation load modes with a fixed delay added to every JDBC statement,
+ * roughly the round trip to a MySQL server on the local network.
+ * Timings belong in the benchmarks module; here only how many statements are in flight at once is asserted.
+ */
+@TestPropertySource(locations = "/application-test.properties",
+		properties = {"spring.jpa.show-sql=false", "gradebook.student-information.mode=parallel",
+				"gradebook.student-information.threads=5", "gradebook.student-information.timeout-millis=300"})
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StudentInformationLatencyTest {
+
+	private static final long ROUND_TRIP_MILLIS = 3;
+
+	private static volatile long roundTripMillis = ROUND_TRIP_MILLIS;
+
+	private static final int RUNS = 40;
+
+	private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+	private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+	private static final AtomicInteger MAX_IN_FLIGHT = new AtomicInteger();
+
+	@TestConfiguration
+	static class LatencyConfiguration {
+
+		@Bean
+		static BeanPostProcessor roundTripLatency() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (bean instanceof DataSource) {
+						return withLatency(bean, DataSource.class);
+					}
+					return bean;
+				}
+			};
+		}
+	}
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private StudentInformationLoader loader;
+
+	@Autowired
+	private AutowireCapableBeanFactory beanFactory;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	public void setupDatabase() {
+		jdbc.execute("insert into student(id, firstname, lastname, email_address) values (1, 'Samba', 'Rumba', 'samba.rumba@babinkuk.com')");
+		jdbc.execute("insert into math_grade(id, student_id, grade) values (1, 1, 90.00)");
+		jdbc.execute("insert into math_grade(id, student_id, grade) values (2, 1, 80.00)");
+		jdbc.execute("insert into science_grade(id, student_id, grade) values (1, 1, 70.00)");
+		jdbc.execute("insert into history_grade(id, student_id, grade) values (1, 1, 60.00)");
+		jdbc.execute("insert into student_subject_stats(student_id, grade_type, grade_count, grade_sum, min_grade, max_grade) "
+				+ "values (1, 'math', 2, 170.00, 80.00, 90.00)");
+	}
+
+	@Test
+	public void loadModesReturnTheSameStudent() {
+
+		GradebookCollegeStudent expected = loader.loadSingleQuery(1);
+
+		for (GradebookCollegeStudent student : new GradebookCollegeStudent[] {loader.loadSequential(1), loader.loadParallel(1)}) {
+			assertEquals(expected.getId(), student.getId());
+			assertEquals(expected.getEmailAddress(), student.getEmailAddress());
+			assertEquals(expected.getStudentGrades().getMathGradeResults(), student.getStudentGrades().getMathGradeResults());
+			assertEquals(expected.getStudentGrades().getScienceGradeResults(), student.getStudentGrades().getScienceGradeResults());
+			assertEquals(expected.getStudentGrades().getHistoryGradeResults(), student.getStudentGrades().getHistoryGradeResults());
+			assertEquals(expected.getSubjectStats().keySet(), student.getSubjectStats().keySet());
+		}
+
+		assertNull(loader.loadSequential(99));
+		assertNull(loader.loadParallel(99));
+	}
+
+	@Test
+	public void parallelLoadOverlapsItsRoundTrips() {
+
+		// five round trips one after another against five at once
+		assertEquals(1, maxInFlight(loader::loadSequential));
+		int parallel = maxInFlight(loader::loadParallel);
+		assertTrue(parallel > 1, "parallel load had at most " + parallel + " statement in flight");
+	}
+
+	@Test
+	public void timedOutParallelLoadCancelsItsQueries() throws Exception {
+
+		// one thread: at the timeout one query runs and four are queued behind it
+		StudentInformationLoader oneThread = new StudentInformationLoader(StudentInformationLoader.PARALLEL, 1, 16, 1);
+		beanFactory.autowireBean(oneThread);
+
+		try {
+			STATEMENTS.set(0);
+			assertThrows(QueryTimeoutException.class, () -> oneThread.loadParallel(1));
+
+			// long enough for all five to run had they not been cancelled
+			Thread.sleep(500);
+			assertTrue(STATEMENTS.get() <= 1, STATEMENTS.get() + " statements sent after the timeout");
+		} finally {
+			oneThread.shutdown();
+		}
+	}
+
+	@Test
+	public void timedOutStudentInformationIsServiceUnavailable() throws Exception {
+
+		// slower than the 300 ms timeout of the parallel load
+		roundTripMillis = 500;
+		try {
+			mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(jsonPath("$.status", is(503)));
+		} finally {
+			roundTripMillis = ROUND_TRIP_MILLIS;
+		}
+	}
+
+	private int maxInFlight(IntFunction<GradebookCollegeStudent> load) {
+		MAX_IN_FLIGHT.set(0);
+		for (int i = 0; i < RUNS; i++) {
+			assertNotNull(load.apply(1));
+		}
+		return MAX_IN_FLIGHT.get();
+	}
+
+	// wraps connections and statements so every execute call waits one round trip first
+	private static Object withLatency(Object target, Class<?> type) {
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			if (method.getName().startsWith("execute")) {
+				STATEMENTS.incrementAndGet();
+				MAX_IN_FLIGHT.accumulateAndGet(IN_FLIGHT.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(roundTripMillis);
+					return invoke(target, method, args);
+				} finally {
+					IN_FLIGHT.decrementAndGet();
+				}
+			}
+			return invoke(target, method, args);
+		});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		Object result;
+		try {
+			result = method.invoke(target, args);
+		} catch (InvocationTargetException exc) {
+			throw exc.getCause();
+		}
+
+		Class<?> returnType = method.getReturnType();
+		if (result != null && (returnType == Connection.class || Statement.class.isAssignableFrom(returnType))) {
+			return withLatency(result, returnType);
+		}
+		return result;
+	}
+
+	@AfterEach
+	public void setupAfterTransaction() {
+		jdbc.execute("DELETE FROM student");
+		jdbc.execute("DELETE FROM math_grade");
+		jdbc.execute("DELETE FROM science_grade");
+		jdbc.execute("DELETE FROM history_grade");
+		jdbc.execute("DELETE FROM student_subject_stats");
+	}
+}
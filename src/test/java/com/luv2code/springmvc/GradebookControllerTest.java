@@ -129,6 +129,29 @@ public class GradebookControllerTest {
 		ModelAndViewAssert.assertViewName(mav, "index");
     }
 
+	@Test
+	public void getStudentsHttpRequestPaged() throws Exception {
+		
+		studentService.createStudent("Chad", "Darby", "chad.darby@luv2code_school.com");
+		
+		MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/").param("limit", "1"))
+				.andExpect(status().isOk()).andReturn();
+		
+		ModelAndView mav = mvcResult.getModelAndView();
+		
+		ModelAndViewAssert.assertViewName(mav, "index");
+		ModelAndViewAssert.assertModelAttributeValue(mav, "nextCursor", 1);
+		assertEquals(1, ((List<?>) mav.getModel().get("students")).size());
+		
+		mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/").param("after", "1").param("limit", "1"))
+				.andExpect(status().isOk()).andReturn();
+		
+		mav = mvcResult.getModelAndView();
+		
+		assertNull(mav.getModel().get("nextCursor"), "Last page has no next cursor");
+		assertEquals(1, ((List<?>) mav.getModel().get("students")).size());
+	}
+
 	@Test
 	public void createStudentHttpRequest() throws Exception {
 